@@ -2,18 +2,26 @@ package company.base;
 
 import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.ios.IOSDriver;
+import company.utils.CachingFieldDecorator;
 import company.utils.ReadProperties;
+import company.utils.ScreenGeometry;
+import company.utils.ScreenSnapshot;
 import company.utils.LoggerUtilities;
+import company.utils.WaitEngine;
 import io.appium.java_client.AppiumDriver;
 import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.ui.ExpectedConditions;
-import org.openqa.selenium.support.ui.WebDriverWait;
 import java.time.LocalDate;
 import java.time.format.DateTimeFormatter;
 import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicLong;
 import java.util.function.Function;
+import java.util.function.Supplier;
 
 /**
  * BasePage class provides the basic functionalities for the application pages.
@@ -31,6 +39,11 @@ public class BasePage {
     protected static ThreadLocal<Function<String, String>> secret = new ThreadLocal<Function<String, String>>();
     private static final String FINGER1 = "finger1";
     protected static Integer threadCount;
+    private static Duration lookupTimeout;
+    //depth of nested probes and misses of the outermost one, for the current thread.
+    private static final ThreadLocal<int[]> probeState = ThreadLocal.withInitial(() -> new int[2]);
+    private static final ThreadLocal<Long> probeSavedMillis = ThreadLocal.withInitial(() -> 0L);
+    private static final AtomicLong totalProbeSavedMillis = new AtomicLong();
     /**
      * This method is used to get the test execution location.
      * @return boolean This returns the test execution location.
@@ -179,6 +192,7 @@ public class BasePage {
         synchronized (lock) {
             try {
                 if (getDriver() != null) {
+                    ScreenGeometry.forget(getDriver());
                     getDriver().quit();
                 } else {
                     LoggerUtilities.error(errMsg);
@@ -215,7 +229,21 @@ public class BasePage {
      */
     public WebElement findElement(By by)
     {
-        return getDriver().findElement(by);
+        return lookup(by);
+    }
+
+    /**
+     * This method is used to find an element, waiting up to the lookup timeout for it the way an implicit wait would.
+     * Inside a probe the lookup does not wait.
+     * @param by This is the locator of the element.
+     * @return WebElement This returns the found element.
+     * @throws TimeoutException If the element was not found in time.
+     */
+    public static WebElement lookup(By by) {
+        if (isProbing()) {
+            return getDriver().findElement(by);
+        }
+        return WaitEngine.getInstance().until("present:" + by, d -> d.findElement(by), getLookupTimeout());
     }
 
     /**
@@ -240,13 +268,11 @@ public class BasePage {
      * @param element This is the element to wait for.
      */
     public void waitForVisibility(WebElement element) {
-        Duration time = Duration.ofSeconds(Long.parseLong(ReadProperties.getValue("wait")));
         try{
-            WebDriverWait wait = new WebDriverWait(getDriver(), time);
-            wait.until(ExpectedConditions.visibilityOf(element));
+            WaitEngine.getInstance().until(WaitEngine.keyOf("visible", element), ExpectedConditions.visibilityOf(element));
         }catch (Exception e)
         {
-            LoggerUtilities.error("Error in Wait For Visibility : " + element + " after " + time + " secs.");
+            LoggerUtilities.error("Error in Wait For Visibility : " + element + " : " + e.getMessage());
         }
     }
 
@@ -256,10 +282,8 @@ public class BasePage {
      */
     public void waitForLoaderToDisappear() {
         String locator = getPlatform().equalsIgnoreCase("android")? "loadingImageView" : "In progress";
-        Duration time = Duration.ofSeconds(Long.parseLong(ReadProperties.getValue("wait")));
         try{
-            WebDriverWait wait = new WebDriverWait(getDriver(), time);
-            wait.until(ExpectedConditions.invisibilityOfElementLocated(By.id(locator)));
+            WaitEngine.getInstance().until("invisible:" + By.id(locator), ExpectedConditions.invisibilityOfElementLocated(By.id(locator)));
         } catch (Exception e) {
             LoggerUtilities.error("Error in Wait For Loader to disappear");
         }
@@ -271,8 +295,7 @@ public class BasePage {
      */
     public void waitUntilClickable(WebElement element) {
         try{
-            WebDriverWait wait = new WebDriverWait(getDriver(), Duration.ofSeconds(Long.parseLong(ReadProperties.getValue("wait"))));
-            wait.until(ExpectedConditions.elementToBeClickable(element));
+            WaitEngine.getInstance().until(WaitEngine.keyOf("clickable", element), ExpectedConditions.elementToBeClickable(element));
         }catch (Exception e)
         {
             LoggerUtilities.error("Error in Wait For Clickable : " + element);
@@ -318,6 +341,7 @@ public class BasePage {
      */
     public void back() {
         getDriver().navigate().back();
+        CachingFieldDecorator.screenChanged();
     }
 
     /**
@@ -330,12 +354,112 @@ public class BasePage {
     public WebElement getLocatorByText(WebElement elementForVisibility, String value, String index) {
         waitForVisibility(elementForVisibility);
         if(getPlatform().equalsIgnoreCase("android")){
-            return getDriver().findElement(By.xpath("(//android.widget.TextView[@text=\"" + value + "\"])[" + index + "]"));
+            return lookup(By.xpath("(//android.widget.TextView[@text=\"" + value + "\"])[" + index + "]"));
         }
         else {
-            return getDriver().findElement(By.xpath("(//XCUIElementTypeStaticText[@name=\"" + value + "\"])[" + index + "]"));
+            return lookup(By.xpath("(//XCUIElementTypeStaticText[@name=\"" + value + "\"])[" + index + "]"));
+        }
+
+    }
+
+    /**
+     * This method is used to wait until one of several elements is displayed, e.g. either screen of an A/B flow or an optional popup.
+     * All candidates are checked in the same poll; when a snapshot can evaluate all locators, a poll is one page source call.
+     * @param locators These are the candidate locators.
+     * @return By This returns the first locator (in argument order) that is displayed, or null if none was displayed in time.
+     */
+    public By waitForAnyOf(By... locators) {
+        try {
+            return WaitEngine.getInstance().until("anyOf:" + Arrays.toString(locators), d -> {
+                boolean[] displayed = displayedLocators(locators);
+                for (int i = 0; i < locators.length; i++) {
+                    if (displayed[i]) {
+                        return locators[i];
+                    }
+                }
+                return null;
+            });
+        } catch (TimeoutException e) {
+            LoggerUtilities.error("None of the elements is displayed : " + Arrays.toString(locators));
+            return null;
         }
+    }
 
+    /**
+     * This method is used to wait until all of several elements are displayed, checking all of them in the same poll.
+     * @param locators These are the locators.
+     * @return Boolean This returns whether all elements were displayed in time.
+     */
+    public Boolean waitForAllOf(By... locators) {
+        try {
+            return WaitEngine.getInstance().until("allOf:" + Arrays.toString(locators), d -> {
+                for (boolean displayed : displayedLocators(locators)) {
+                    if (!displayed) {
+                        return false;
+                    }
+                }
+                return true;
+            });
+        } catch (TimeoutException e) {
+            LoggerUtilities.error("Not all elements are displayed : " + Arrays.toString(locators));
+            return false;
+        }
+    }
+
+    /**
+     * This method is used to wait until one of several page object elements is displayed, checking all of them in the same poll.
+     * @param elements These are the candidate elements.
+     * @return WebElement This returns the first element (in argument order) that is displayed, or null if none was displayed in time.
+     */
+    public WebElement waitForAnyOf(WebElement... elements) {
+        try {
+            return WaitEngine.getInstance().until(anyOfKey(elements), d -> firstPresent(elements));
+        } catch (TimeoutException e) {
+            LoggerUtilities.error("None of the elements is displayed : " + Arrays.toString(elements));
+            return null;
+        }
+    }
+
+    /**
+     * This method is used to get the first displayed element without waiting.
+     * @param elements These are the candidate elements.
+     * @return WebElement This returns the first element (in argument order) that is displayed, or null if none is.
+     */
+    public static WebElement firstPresent(WebElement... elements) {
+        for (WebElement element : elements) {
+            if (element != null && isPresent(element)) {
+                return element;
+            }
+        }
+        return null;
+    }
+
+    //one key for the combination of locators, null if one of the elements does not tell its locator.
+    private static String anyOfKey(WebElement... elements) {
+        StringBuilder key = new StringBuilder("anyOf:");
+        for (WebElement element : elements) {
+            String elementKey = WaitEngine.keyOf("", element);
+            if (elementKey == null) {
+                return null;
+            }
+            key.append('[').append(elementKey.substring(1)).append(']');
+        }
+        return key.toString();
+    }
+
+    private static boolean[] displayedLocators(By... locators) {
+        boolean[] displayed = new boolean[locators.length];
+        if (Arrays.stream(locators).allMatch(ScreenSnapshot::supports)) {
+            ScreenSnapshot snapshot = new ScreenSnapshot(getDriver().getPageSource(), "android".equalsIgnoreCase(getPlatform()));
+            for (int i = 0; i < locators.length; i++) {
+                displayed[i] = snapshot.findAll(locators[i]).stream().anyMatch(ScreenSnapshot.SnapshotNode::isDisplayed);
+            }
+        } else {
+            for (int i = 0; i < locators.length; i++) {
+                displayed[i] = findIfPresent(locators[i]) != null;
+            }
+        }
+        return displayed;
     }
 
     /**
@@ -345,13 +469,11 @@ public class BasePage {
      */
     public Boolean isElementDisplayed(WebElement element) {
         waitForVisibility(element);
-        try{
-            return element.isDisplayed();
-        }
-        catch (Exception e){
-            LoggerUtilities.error("Element is not displayed : " + Arrays.toString(e.getStackTrace()));
-            return false;
+        if (isPresent(element)) {
+            return true;
         }
+        LoggerUtilities.error("Element is not displayed : " + element);
+        return false;
     }
 
     /**
@@ -443,8 +565,141 @@ public class BasePage {
         }
     }
 
-    public static void implicitWait() {
-        getDriver().manage().timeouts().implicitlyWait(Duration.ofSeconds(Long.parseLong(ReadProperties.getValue("implicitWait"))));
+    /**
+     * This method is used to switch the implicit wait of a new session off. It is set once per session: element lookups wait
+     * on the client instead (see {@link #lookup(By)} and {@link CachingFieldDecorator}), so waits and probes need no timeout calls.
+     */
+    public static void disableImplicitWait() {
+        getDriver().manage().timeouts().implicitlyWait(Duration.ZERO);
+    }
+
+    /**
+     * This method is used to get how long an element lookup waits for its element, 'implicitWait' in config.properties.
+     * @return Duration This returns the lookup timeout.
+     */
+    public static Duration getLookupTimeout() {
+        if (lookupTimeout == null) {
+            lookupTimeout = Duration.ofSeconds(Long.parseLong(ReadProperties.getValue("implicitWait")));
+        }
+        return lookupTimeout;
+    }
+
+    /**
+     * This method is used to run a probe: element lookups inside it fail at once instead of waiting for the element.
+     * Nested probes belong to the outermost one, which counts at most one saved lookup wait however many lookups missed.
+     * @param action This is the action to run.
+     * @param <T> This is the type returned by the action.
+     * @return T This returns the value of the action.
+     */
+    public static <T> T probe(Supplier<T> action) {
+        return withoutLookupWait(action, true);
+    }
+
+    /**
+     * This method is used to run a probe, see {@link #probe(Supplier)}.
+     * @param action This is the action to run.
+     */
+    public static void probe(Runnable action) {
+        probe(() -> {
+            action.run();
+            return null;
+        });
+    }
+
+    /**
+     * This method is used to run the polls of an explicit wait: lookups fail at once, so the wait's timeout is the only limit.
+     * Misses are polls of the wait, not saved lookup waits.
+     * @param action This is the action to run.
+     * @param <T> This is the type returned by the action.
+     * @return T This returns the value of the action.
+     */
+    public static <T> T withoutLookupWait(Supplier<T> action) {
+        return withoutLookupWait(action, false);
+    }
+
+    /**
+     * This method is used to check if the current thread is inside a probe or the polls of a wait.
+     * @return boolean This returns true if element lookups must not wait.
+     */
+    public static boolean isProbing() {
+        return probeState.get()[0] > 0;
+    }
+
+    private static <T> T withoutLookupWait(Supplier<T> action, boolean countSaved) {
+        int[] state = probeState.get();
+        boolean outermost = state[0] == 0;
+        if (outermost) {
+            state[1] = 0;
+        }
+        state[0]++;
+        try {
+            return action.get();
+        } finally {
+            state[0]--;
+            if (outermost && countSaved && state[1] > 0) {
+                long saved = getLookupTimeout().toMillis();
+                probeSavedMillis.set(probeSavedMillis.get() + saved);
+                totalProbeSavedMillis.addAndGet(saved);
+            }
+        }
+    }
+
+    /**
+     * This method is used to check at once whether an element is on the screen, without waiting for it.
+     * @param element This is the element to check.
+     * @return boolean This returns true if the element is found and displayed.
+     */
+    public static boolean isPresent(WebElement element) {
+        return probe(() -> {
+            try {
+                return element.isDisplayed();
+            } catch (NoSuchElementException | StaleElementReferenceException e) {
+                recordProbeMiss();
+                return false;
+            }
+        });
+    }
+
+    /**
+     * This method is used to find an element if it is on the screen, without waiting for it.
+     * @param by This is the locator of the element.
+     * @return WebElement This returns the first displayed match, or null if there is none.
+     */
+    public static WebElement findIfPresent(By by) {
+        return probe(() -> {
+            try {
+                for (WebElement element : getDriver().findElements(by)) {
+                    if (element.isDisplayed()) {
+                        return element;
+                    }
+                }
+            } catch (StaleElementReferenceException ignored) {
+            }
+            recordProbeMiss();
+            return null;
+        });
+    }
+
+    private static void recordProbeMiss() {
+        probeState.get()[1]++;
+    }
+
+    /**
+     * This method is used to get and reset the time the current thread's probes saved, i.e. lookup waits that did not run.
+     * @return long This returns the saved time in milliseconds since the last call.
+     */
+    public static long takeProbeSavedMillis() {
+        long saved = probeSavedMillis.get();
+        probeSavedMillis.set(0L);
+        return saved;
+    }
+
+    /**
+     * This method is used to get the time saved by probes in the whole run.
+     * @return long This returns the saved time in seconds.
+     */
+    public static long getTotalProbeSavedSeconds() {
+        return totalProbeSavedMillis.get() / 1000;
     }
 
     public String getTodaysDate() {
@@ -468,11 +723,11 @@ public class BasePage {
         if (getDriver() instanceof AndroidDriver) {
             ((AndroidDriver) getDriver()).hideKeyboard();
         } else if (getDriver() instanceof IOSDriver) {
-            try{
-                click(getDriver().findElement(By.xpath("//*[@label=\"Done\"]")), "Clicked on Done button");
-            }
-            catch (Exception e) {
-                click(getDriver().findElement(By.xpath("//*[@label=\"Return\"]")), "Clicked on Done button");
+            WebElement doneButton = findIfPresent(By.xpath("//*[@label=\"Done\"]"));
+            if (doneButton != null) {
+                click(doneButton, "Clicked on Done button");
+            } else {
+                click(lookup(By.xpath("//*[@label=\"Return\"]")), "Clicked on Done button");
                 LoggerUtilities.error("Done button not found, clicked on Return button");
             }
         }
@@ -502,8 +757,7 @@ public class BasePage {
      * @param time   This is the duration to waitInSeconds.
      */
     public void waitForVisibility(WebElement element, Duration time) {
-        WebDriverWait wait = new WebDriverWait(getDriver(), time);
-        wait.until(ExpectedConditions.visibilityOf(element));
+        WaitEngine.getInstance().until(WaitEngine.keyOf("visible", element), ExpectedConditions.visibilityOf(element), time);
     }
 
     /**
@@ -511,12 +765,10 @@ public class BasePage {
      * @param element This is the element to waitInSeconds for.
      */
     public void waitForInvisibility(WebElement element) {
-        Duration time = Duration.ofSeconds(Long.parseLong(ReadProperties.getValue("wait")));
         try{
-            WebDriverWait wait = new WebDriverWait(getDriver(), time);
-            wait.until(ExpectedConditions.invisibilityOf(element));
+            WaitEngine.getInstance().until(WaitEngine.keyOf("invisible", element), ExpectedConditions.invisibilityOf(element));
         } catch (Exception e) {
-            LoggerUtilities.error("Error in Wait For Invisibility : " + element + " after " + time + " secs.");
+            LoggerUtilities.error("Error in Wait For Invisibility : " + element + " : " + e.getMessage());
         }
     }
 
@@ -535,8 +787,6 @@ public class BasePage {
     }
 
     public WebElement explicitWaitForVisibilityByLocator(By locator) {
-        long waitSeconds = Long.parseLong(ReadProperties.getValue("wait"));
-        WebDriverWait wait = new WebDriverWait(getDriver(), Duration.ofSeconds(waitSeconds));
-        return wait.until(ExpectedConditions.visibilityOfElementLocated(locator));
+        return WaitEngine.getInstance().until("visible:" + locator, ExpectedConditions.visibilityOfElementLocated(locator));
     }
 }
\ No newline at end of file
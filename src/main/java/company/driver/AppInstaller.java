@@ -0,0 +1,153 @@
+package company.driver;
+
+import company.utils.AdbClient;
+import company.utils.LoggerUtilities;
+import company.utils.ReadProperties;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * AppInstaller class keeps track of which APK build is installed on every Android device and installs it only when it changed.
+ * The installed build is identified by the SHA-256 of its base.apk on the device, compared with the APK under
+ * src/test/resources/app/&lt;env&gt;/&lt;country&gt;/. When they match, {@link DriverFactory} starts the session without the app
+ * capability, so UiAutomator2 does not push and reinstall the APK for every session.
+ * Devices can be prepared in parallel as soon as they join the device pool, see {@link #setPreInstallApp(String)}.
+ */
+public class AppInstaller {
+
+    private static final String DEVICE_APK = "/data/local/tmp/app-under-test.apk";
+    private static final Map<String, String> installedChecksumByUdid = new ConcurrentHashMap<>();
+    private static final Map<String, CompletableFuture<Boolean>> preInstalls = new ConcurrentHashMap<>();
+    private static final Map<String, Object> deviceLocks = new ConcurrentHashMap<>();
+    private static final Map<String, String> checksums = new ConcurrentHashMap<>();
+    private static final ExecutorService installers = Executors.newCachedThreadPool(r -> {
+        Thread t = new Thread(r, "app-preinstall");
+        t.setDaemon(true);
+        return t;
+    });
+    private static volatile String preInstallAppPath;
+
+    private AppInstaller() {
+    }
+
+    /**
+     * This method is used to set the APK that is installed on every device joining the pool, see {@link #preInstall(String)}.
+     * @param appPath This is the path to the APK, null switches pre-install off.
+     */
+    public static void setPreInstallApp(String appPath) {
+        preInstallAppPath = appPath;
+    }
+
+    /**
+     * This method is used to start installing the pre-install APK on a device in the background.
+     * Nothing happens if no pre-install APK is set or the device is already being prepared.
+     * @param udid This is the unique device identifier.
+     */
+    public static void preInstall(String udid) {
+        String appPath = preInstallAppPath;
+        if (appPath == null) {
+            return;
+        }
+        preInstalls.computeIfAbsent(udid, u -> CompletableFuture.supplyAsync(() -> installIfChanged(u, appPath), installers));
+    }
+
+    /**
+     * This method is used to make sure the given APK is installed on the device, waiting for a running pre-install first.
+     * @param udid This is the unique device identifier.
+     * @param appPath This is the path to the APK.
+     * @return boolean This returns true if the device has exactly this build installed, false if the session has to install it.
+     */
+    public static boolean ensureInstalled(String udid, String appPath) {
+        CompletableFuture<Boolean> preInstall = preInstalls.get(udid);
+        if (preInstall != null && !preInstall.isDone()) {
+            preInstall.join();
+        }
+        return installIfChanged(udid, appPath);
+    }
+
+    //runs on the pre-install threads too, so it must not wait for the pre-install of the device.
+    private static boolean installIfChanged(String udid, String appPath) {
+        synchronized (deviceLocks.computeIfAbsent(udid, k -> new Object())) {
+            try {
+                String checksum = checksum(appPath);
+                if (checksum.equals(installedChecksumByUdid.get(udid))) {
+                    return true;
+                }
+                String packageName = ReadProperties.getValue("androidPackage");
+                if (checksum.equals(installedApkChecksum(udid, packageName))) {
+                    installedChecksumByUdid.put(udid, checksum);
+                    LoggerUtilities.info("Same build of " + packageName + " already installed on " + udid + ", skipping install.");
+                    return true;
+                }
+                install(udid, appPath);
+                installedChecksumByUdid.put(udid, checksum);
+                return true;
+            } catch (IOException | RuntimeException e) {
+                LoggerUtilities.error("Error in installing " + appPath + " on " + udid + " : " + e.getMessage());
+                installedChecksumByUdid.remove(udid);
+                return false;
+            }
+        }
+    }
+
+    /**
+     * This method is used to get the SHA-256 of a file. It is computed once per file version (path, size and modification time).
+     * @param appPath This is the path to the APK.
+     * @return String This returns the checksum as lower case hex.
+     */
+    public static String checksum(String appPath) {
+        Path apk = Paths.get(appPath);
+        try {
+            String fileId = apk.toAbsolutePath() + ":" + Files.size(apk) + ":" + Files.getLastModifiedTime(apk).toMillis();
+            return checksums.computeIfAbsent(fileId, id -> {
+                try (InputStream in = Files.newInputStream(apk)) {
+                    MessageDigest digest = MessageDigest.getInstance("SHA-256");
+                    byte[] buffer = new byte[64 * 1024];
+                    int read;
+                    while ((read = in.read(buffer)) > 0) {
+                        digest.update(buffer, 0, read);
+                    }
+                    return HexFormat.of().formatHex(digest.digest());
+                } catch (IOException | NoSuchAlgorithmException e) {
+                    throw new RuntimeException("Cannot hash " + apk + " : " + e.getMessage(), e);
+                }
+            });
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot read " + apk + " : " + e.getMessage(), e);
+        }
+    }
+
+    private static String installedApkChecksum(String udid, String packageName) throws IOException {
+        AdbClient adb = AdbClient.getInstance();
+        for (String line : adb.shell(udid, "pm path " + packageName).split("\n")) {
+            if (line.startsWith("package:") && line.endsWith("base.apk")) {
+                String[] output = adb.shell(udid, "sha256sum " + line.substring("package:".length())).trim().split("\\s+");
+                return output[0];
+            }
+        }
+        return null;
+    }
+
+    private static void install(String udid, String appPath) throws IOException {
+        long start = System.currentTimeMillis();
+        AdbClient adb = AdbClient.getInstance();
+        adb.push(udid, Files.readAllBytes(Paths.get(appPath)), DEVICE_APK, 0644);
+        String output = adb.shell(udid, "pm install -r -d -g " + DEVICE_APK + " ; rm -f " + DEVICE_APK).trim();
+        if (!output.contains("Success")) {
+            throw new IOException("pm install failed : " + output);
+        }
+        LoggerUtilities.info("Installed " + Paths.get(appPath).getFileName() + " on " + udid + " in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+}
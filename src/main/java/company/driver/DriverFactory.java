@@ -33,6 +33,7 @@ public class DriverFactory {
             case "android":
                 UiAutomator2Options options = new UiAutomator2Options();
                 if(BasePage.getTestExecutionLocation().equalsIgnoreCase("local") || BasePage.getTestExecutionLocation().equalsIgnoreCase("runner")) {
+                    boolean appInstalled = AppInstaller.ensureInstalled(udid, appPath);
                     options.setUdid(udid)
                             .setPlatformName("Android")
                             .setAutomationName("UiAutomator2")
@@ -41,9 +42,15 @@ public class DriverFactory {
                             .setAppPackage(ReadProperties.getValue("appPackage"))
                             .setNewCommandTimeout(Duration.ofSeconds(150))
                             .setUiautomator2ServerInstallTimeout(Duration.ofSeconds(150))
-                            .setApp(appPath)
                             .setAdbExecTimeout(Duration.ofSeconds(60))
                             .setCapability("appium:waitForIdleTimeout", 20000);
+                    if (appInstalled) {
+                        //same build is on the device: start it by package, app data is still cleared (fast reset).
+                        options.setNoReset(false)
+                                .setFullReset(false);
+                    } else {
+                        options.setApp(appPath);
+                    }
                     driver = new AndroidDriver(new URL(appiumUrl), options);
                 } else {
                     HashMap<String, Object> browserstackOptions = new HashMap<String, Object>();
@@ -112,14 +119,39 @@ public class DriverFactory {
             default:
                 throw new Exception("Incorrect platform set - " + BasePage.getPlatform());
         }
-        BasePage.implicitWait();
+        BasePage.disableImplicitWait();
         return BasePage.getDriver();
     }
 
     /**
-     * This method is used to quit the driver.
+     * This method is used to get a driver for the test class, reusing a pooled session when the session pool is enabled.
+     * @param appPath This is the path to the application.
+     * @param appiumUrl This is the URL of the Appium server.
+     * @param udid This is the unique device identifier.
+     * @param bundleId This is the bundle identifier for iOS applications.
+     * @return AppiumDriver This returns the leased or newly initialized driver.
+     * @throws Exception If a new session could not be started.
+     */
+    public AppiumDriver leaseDriver(String appPath, String appiumUrl, String udid, String bundleId) throws Exception {
+        if (!isSessionPoolEnabled()) {
+            return selectDriver(appPath, appiumUrl, udid, bundleId);
+        }
+        return DriverPool.lease(udid, () -> selectDriver(appPath, appiumUrl, udid, bundleId));
+    }
+
+    /**
+     * This method is used to quit the driver, or return it to the session pool when the pool is enabled.
      */
     public void tearDown() {
-        BasePage.quitDriver();
+        if (isSessionPoolEnabled()) {
+            DriverPool.release(BasePage.getUdid());
+        } else {
+            BasePage.quitDriver();
+        }
+    }
+
+    private static boolean isSessionPoolEnabled() {
+        String enableSessionPool = (System.getProperty("enableSessionPool") != null && System.getProperty("enableSessionPool").trim().length() > 0) ? System.getProperty("enableSessionPool").trim() : ReadProperties.getValue("enableSessionPool");
+        return Boolean.parseBoolean(enableSessionPool);
     }
 }
@@ -0,0 +1,142 @@
+package company.driver;
+
+import company.base.BasePage;
+import company.utils.AppInteractions;
+import company.utils.LoggerUtilities;
+import company.utils.ScreenGeometry;
+import io.appium.java_client.AppiumDriver;
+
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DriverPool class keeps one warm AppiumDriver session per device and leases it to test classes.
+ * A returned session has its app state reset and is handed to the next class on the same device,
+ * so only the first class on a device (or a class after a failed health check) pays the session start.
+ */
+public class DriverPool {
+
+    private static final Map<String, AppiumDriver> idleSessions = new ConcurrentHashMap<>();
+    private static final AtomicInteger hits = new AtomicInteger();
+    private static final AtomicInteger misses = new AtomicInteger();
+    private static final AtomicLong totalStartMillis = new AtomicLong();
+
+    private DriverPool() {
+    }
+
+    /**
+     * This method is used to lease a session for the given device.
+     * An idle session is reused when it passes the health check, otherwise a new one is created.
+     * @param udid This is the unique device identifier.
+     * @param sessionStarter This creates a new session when no healthy idle session exists.
+     * @return AppiumDriver This returns the leased driver, also set as the current thread's driver.
+     * @throws Exception If a new session could not be started.
+     */
+    public static AppiumDriver lease(String udid, Callable<AppiumDriver> sessionStarter) throws Exception {
+        AppiumDriver pooled = udid == null ? null : idleSessions.remove(udid);
+        if (pooled != null) {
+            if (isHealthy(pooled)) {
+                hits.incrementAndGet();
+                BasePage.setDriver(pooled);
+                LoggerUtilities.info("Session pool hit for device : " + udid + ", session : " + pooled.getSessionId());
+                return pooled;
+            }
+            LoggerUtilities.info("Pooled session for device " + udid + " failed the health check. Recreating.");
+            quietQuit(pooled);
+        }
+        misses.incrementAndGet();
+        long start = System.currentTimeMillis();
+        AppiumDriver created = sessionStarter.call();
+        totalStartMillis.addAndGet(System.currentTimeMillis() - start);
+        LoggerUtilities.info("Session pool miss for device : " + udid + ", new session started in " + (System.currentTimeMillis() - start) + " ms.");
+        return created;
+    }
+
+    /**
+     * This method is used to return the current thread's session to the pool.
+     * The app is terminated and activated again so the next class starts from a clean launch.
+     * If the reset fails the session is quit instead of pooled.
+     * @param udid This is the unique device identifier the session belongs to.
+     */
+    public static void release(String udid) {
+        AppiumDriver current;
+        try {
+            current = BasePage.getDriver();
+        } catch (Exception e) {
+            LoggerUtilities.error("Session pool release : no driver for device " + udid);
+            return;
+        }
+        if (udid == null) {
+            BasePage.quitDriver();
+            return;
+        }
+        try {
+            new AppInteractions().killAppAndOpenApp();
+            AppiumDriver previous = idleSessions.put(udid, current);
+            if (previous != null && previous != current) {
+                quietQuit(previous);
+            }
+            LoggerUtilities.info("Session returned to pool for device : " + udid);
+        } catch (Exception e) {
+            LoggerUtilities.error("Session pool reset failed for device " + udid + ", quitting session : " + e.getMessage());
+            BasePage.quitDriver();
+        }
+    }
+
+    /**
+     * This method is used to check if an idle session is pooled for the given device.
+     * @param udid This is the unique device identifier.
+     * @return boolean This returns true if a session waits in the pool for the device.
+     */
+    public static boolean hasIdleSession(String udid) {
+        return udid != null && idleSessions.containsKey(udid);
+    }
+
+    /**
+     * This method is used to quit every pooled session. Call it once at the end of the suite, before the device leases are released.
+     */
+    public static void shutdown() {
+        for (Map.Entry<String, AppiumDriver> entry : idleSessions.entrySet()) {
+            quietQuit(entry.getValue());
+            LoggerUtilities.info("Pooled session closed for device : " + entry.getKey());
+        }
+        idleSessions.clear();
+    }
+
+    /**
+     * This method is used to get the pool statistics for the report.
+     * Time saved is estimated as the average measured session start multiplied by the number of hits.
+     * @return String This returns a one line summary of hits, misses and estimated time saved.
+     */
+    public static String getSummary() {
+        int missCount = misses.get();
+        long averageStart = missCount == 0 ? 0 : totalStartMillis.get() / missCount;
+        long savedSeconds = (averageStart * hits.get()) / 1000;
+        return "hits=" + hits.get() + ", misses=" + missCount + ", avg session start=" + averageStart + " ms, est. time saved=" + savedSeconds + " s";
+    }
+
+    private static boolean isHealthy(AppiumDriver pooled) {
+        try {
+            if (pooled.getSessionId() == null) {
+                return false;
+            }
+            //the size is read anyway, so gestures of the next class start with it cached.
+            ScreenGeometry.remember(pooled, pooled.manage().window().getSize());
+            return true;
+        } catch (Exception e) {
+            return false;
+        }
+    }
+
+    private static void quietQuit(AppiumDriver pooled) {
+        ScreenGeometry.forget(pooled);
+        try {
+            pooled.quit();
+        } catch (Exception e) {
+            LoggerUtilities.error("Error in closing pooled session : " + e.getMessage());
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package company.pom.login;
 
 import company.base.BasePage;
+import company.utils.CachingFieldDecorator;
 import company.pom.products.Products;
 import io.appium.java_client.pagefactory.*;
 import org.openqa.selenium.WebElement;
@@ -9,7 +10,7 @@ import org.openqa.selenium.support.PageFactory;
 public class Login extends BasePage {
 
     public Login() {
-        PageFactory.initElements(new AppiumFieldDecorator(getDriver()), this);
+        PageFactory.initElements(new CachingFieldDecorator(getDriver(), getClass()), this);
     }
 
     @AndroidFindAll({
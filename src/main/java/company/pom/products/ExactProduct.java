@@ -1,8 +1,8 @@
 package company.pom.products;
 
 import company.base.BasePage;
+import company.utils.CachingFieldDecorator;
 import io.appium.java_client.pagefactory.AndroidBy;
-import io.appium.java_client.pagefactory.AppiumFieldDecorator;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.PageFactory;
@@ -11,7 +11,7 @@ import org.testng.Assert;
 public class ExactProduct extends BasePage {
 
     public ExactProduct(){
-        PageFactory.initElements(new AppiumFieldDecorator(getDriver()), this);
+        PageFactory.initElements(new CachingFieldDecorator(getDriver(), getClass()), this);
     }
 
     @AndroidBy(accessibility = "test-Price")
@@ -1,8 +1,11 @@
 package company.pom.products;
 
 import company.utils.LoggerUtilities;
+import company.utils.ScreenSnapshot;
+import io.appium.java_client.AppiumBy;
 import io.appium.java_client.pagefactory.*;
 import company.base.BasePage;
+import company.utils.CachingFieldDecorator;
 import org.openqa.selenium.By;
 import org.openqa.selenium.WebElement;
 import org.openqa.selenium.support.PageFactory;
@@ -10,9 +13,12 @@ import org.openqa.selenium.support.PageFactory;
 public class Products extends BasePage {
 
     public Products(){
-        PageFactory.initElements(new AppiumFieldDecorator(getDriver()), this);
+        PageFactory.initElements(new CachingFieldDecorator(getDriver(), getClass()), this);
     }
 
+    private static final By HEADER = By.xpath("//*[@text='PRODUCTS']");
+    private static final By LOGIN_USERNAME = AppiumBy.accessibilityId("test-Username");
+
     @AndroidBy(xpath = "//*[@text='PRODUCTS']")
     private WebElement headerText;
 
@@ -22,10 +28,33 @@ public class Products extends BasePage {
         return headerText.getText();
     }
 
+    public boolean isHeaderDisplayed()
+    {
+        return isElementDisplayed(headerText);
+    }
+
+    /**
+     * This method is used to check if the products screen comes up rather than the login screen, e.g. after a restored login.
+     * Both screens are waited for together, so a logged-out app is detected as soon as the login screen shows.
+     * @return boolean This returns true if the products header was displayed.
+     */
+    public boolean isHeaderDisplayedInsteadOfLogin()
+    {
+        return HEADER.equals(waitForAnyOf(HEADER, LOGIN_USERNAME));
+    }
+
     public ExactProduct searchProduct(String productName)
     {
         LoggerUtilities.infoLoggerInFileAndReport("Searching for product: " + productName);
-        click(findElement(By.xpath("//*[@text='" + productName + "']")), productName);
+        //the product name is looked up in the text index of one page source instead of an on-device XPath over the whole tree.
+        ScreenSnapshot.SnapshotNode product = ScreenSnapshot.take().byText(productName).stream()
+                .filter(ScreenSnapshot.SnapshotNode::isDisplayed).findFirst().orElse(null);
+        if (product != null && product.getCenter() != null) {
+            product.tap();
+            LoggerUtilities.infoLoggerInFileAndReport("Clicked on " + productName + ": " + product);
+        } else {
+            click(findElement(By.xpath("//*[@text='" + productName + "']")), productName);
+        }
         return new ExactProduct();
     }
 }
@@ -0,0 +1,216 @@
+package company.utils;
+
+import company.base.BasePage;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.WebElement;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * AdaptiveScroller class scrolls a list to an element with as few steps as possible.
+ * Every step takes one {@link ScreenSnapshot}, which locates the target, detects the end of the list and measures how far the
+ * content moved: the median shift of the labelled nodes seen before and after the swipe.
+ * While the target is not on screen the list is flung with short fast swipes; the finger travel is adjusted after every fling
+ * so one fling moves the content by most of the list height (far, but without skipping rows), and the learned travel is kept
+ * for the next search of the thread. Once the target shows up, one slow swipe that decelerates to a stop (no fling) moves it
+ * into the middle of the list, so no extra scroll is needed. There are no fixed settle sleeps: the page source call of the next
+ * step returns when the UI is idle, i.e. when the list has settled.
+ */
+public class AdaptiveScroller {
+
+    private static final double TARGET_STEP = 0.8;
+    private static final double MIN_TRAVEL = 0.2;
+    private static final double MAX_TRAVEL = 0.7;
+    private static final double BAND_TOP = 0.15;
+    private static final double BAND_BOTTOM = 0.85;
+    private static final Duration FLING_DUR = Duration.ofMillis(200);
+    private static final Duration PRECISE_DUR = Duration.ofMillis(600);
+    private static final ThreadLocal<Double> flingTravel = ThreadLocal.withInitial(() -> 0.4);
+
+    private AdaptiveScroller() {
+    }
+
+    /**
+     * This method is used to scroll until an element matching the locator is in the middle part of the list.
+     * @param locator This is the locator of the element, it must be supported by {@link ScreenSnapshot#supports(By)}.
+     * @param direction This is the direction to scroll in, UP or DOWN.
+     * @return WebElement This returns the element.
+     * @throws NoSuchElementException If the element was not found before the end of the list.
+     */
+    public static WebElement scrollTo(By locator, CommonGestures.ScrollDirection direction) {
+        if (direction != CommonGestures.ScrollDirection.UP && direction != CommonGestures.ScrollDirection.DOWN) {
+            throw new IllegalArgumentException("Adaptive scrolling supports UP and DOWN only : " + direction);
+        }
+        int maxSteps = Integer.parseInt(ScrollSearch.getMaxScrollSwipes());
+        long start = System.currentTimeMillis();
+        int flings = 0;
+        int preciseSwipes = 0;
+        boolean lastWasPrecise = false;
+        ScreenSnapshot snapshot = ScreenSnapshot.take();
+        long fingerprint = PageFingerprint.fingerprint(snapshot.getPageSource());
+        for (int step = 0; step <= maxSteps; step++) {
+            Rectangle list = listBounds(snapshot);
+            ScreenSnapshot.SnapshotNode target = firstDisplayed(snapshot.findAll(locator));
+            if (target != null) {
+                int offset = target.getCenter().getY() - (list.getY() + list.getHeight() / 2);
+                boolean inBand = Math.abs(offset) <= list.getHeight() * (BAND_BOTTOM - BAND_TOP) / 2;
+                if (inBand || lastWasPrecise) {
+                    WebElement element = BasePage.findIfPresent(locator);
+                    LoggerUtilities.info("Adaptive scroll found " + locator + " after " + flings + " flings and " + preciseSwipes
+                            + " precise swipes in " + (System.currentTimeMillis() - start) + " ms (fling travel " + Math.round(flingTravel.get() * 100) + "%).");
+                    return element != null ? element : target.toElement();
+                }
+                preciseSwipe(list, offset);
+                preciseSwipes++;
+                lastWasPrecise = true;
+            } else {
+                fling(list, direction);
+                flings++;
+                lastWasPrecise = false;
+            }
+            ScreenSnapshot next = ScreenSnapshot.take();
+            long nextFingerprint = PageFingerprint.fingerprint(next.getPageSource());
+            if (nextFingerprint == fingerprint && target == null) {
+                break;
+            }
+            if (!lastWasPrecise) {
+                learn(snapshot, next, list, direction);
+            }
+            CachingFieldDecorator.screenChanged();
+            snapshot = next;
+            fingerprint = nextFingerprint;
+        }
+        LoggerUtilities.info("Adaptive scroll did not find " + locator + " after " + flings + " flings in " + (System.currentTimeMillis() - start) + " ms.");
+        throw new NoSuchElementException("Element not found after scrolling : " + locator);
+    }
+
+    /**
+     * This method is used to scroll down to an element and click it.
+     * @param locator This is the locator of the element.
+     * @param message This is the message to log.
+     */
+    public static void scrollToAndClick(By locator, String message) {
+        scrollTo(locator, CommonGestures.ScrollDirection.DOWN).click();
+        LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success : " + message);
+    }
+
+    /**
+     * This method is used to measure how far the content moved between two snapshots.
+     * @param before This is the snapshot before the swipe.
+     * @param after This is the snapshot after the swipe.
+     * @param list This is the area of the list, nodes outside it (status bar, headers) are not counted.
+     * @return Integer This returns the median upward shift of the labelled nodes in pixels, or null if no node is on both snapshots.
+     */
+    static Integer contentShift(ScreenSnapshot before, ScreenSnapshot after, Rectangle list) {
+        Map<String, Integer> positions = anchors(before, list);
+        List<Integer> shifts = new ArrayList<>();
+        for (Map.Entry<String, Integer> anchor : anchors(after, list).entrySet()) {
+            Integer y = positions.get(anchor.getKey());
+            if (y != null) {
+                shifts.add(y - anchor.getValue());
+            }
+        }
+        if (shifts.isEmpty()) {
+            return null;
+        }
+        Collections.sort(shifts);
+        return shifts.get(shifts.size() / 2);
+    }
+
+    private static void learn(ScreenSnapshot before, ScreenSnapshot after, Rectangle list, CommonGestures.ScrollDirection direction) {
+        Integer shift = contentShift(before, after, list);
+        double travel = flingTravel.get();
+        if (shift == null) {
+            //nothing seen on both screens: the fling moved more than a screen and may have skipped the target.
+            travel = travel / 2;
+        } else {
+            int moved = direction == CommonGestures.ScrollDirection.DOWN ? shift : -shift;
+            if (moved <= 0) {
+                return;
+            }
+            travel = travel * (TARGET_STEP * list.getHeight()) / moved;
+        }
+        flingTravel.set(Math.max(MIN_TRAVEL, Math.min(MAX_TRAVEL, travel)));
+    }
+
+    private static void fling(Rectangle list, CommonGestures.ScrollDirection direction) {
+        int x = list.getX() + list.getWidth() / 2;
+        int half = (int) (list.getHeight() * flingTravel.get() / 2);
+        int center = list.getY() + list.getHeight() / 2;
+        Point low = new Point(x, center + half);
+        Point high = new Point(x, center - half);
+        if (direction == CommonGestures.ScrollDirection.DOWN) {
+            Gesture.create().swipe(low, high, FLING_DUR).perform();
+        } else {
+            Gesture.create().swipe(high, low, FLING_DUR).perform();
+        }
+    }
+
+    //content follows the finger 1:1 when it stops before lifting, so the finger travels exactly the offset.
+    private static void preciseSwipe(Rectangle list, int offset) {
+        int x = list.getX() + list.getWidth() / 2;
+        int from = offset > 0 ? list.getY() + (int) (list.getHeight() * BAND_BOTTOM) : list.getY() + (int) (list.getHeight() * BAND_TOP);
+        int to = Math.max(list.getY() + 1, Math.min(list.getY() + list.getHeight() - 1, from - offset));
+        Gesture.create().swipe(new Point(x, from), new Point(x, to), PRECISE_DUR, Gesture.Velocity.EASE_OUT).perform();
+    }
+
+    private static ScreenSnapshot.SnapshotNode firstDisplayed(List<ScreenSnapshot.SnapshotNode> nodes) {
+        for (ScreenSnapshot.SnapshotNode node : nodes) {
+            if (node.isDisplayed() && node.getCenter() != null) {
+                return node;
+            }
+        }
+        return null;
+    }
+
+    //the scrollable container with the largest area, or the screen when there is none.
+    private static Rectangle listBounds(ScreenSnapshot snapshot) {
+        Rectangle best = null;
+        for (ScreenSnapshot.SnapshotNode node : snapshot.getNodes()) {
+            boolean scrollable = "true".equals(node.getAttribute("scrollable"))
+                    || Set.of("XCUIElementTypeTable", "XCUIElementTypeCollectionView", "XCUIElementTypeScrollView").contains(node.getTagName());
+            Rectangle rect = scrollable ? node.getRect() : null;
+            if (rect != null && rect.getHeight() > 0 && (best == null || rect.getWidth() * rect.getHeight() > best.getWidth() * best.getHeight())) {
+                best = rect;
+            }
+        }
+        if (best != null) {
+            return best;
+        }
+        ScreenGeometry geometry = ScreenGeometry.current();
+        return new Rectangle(0, 0, geometry.getHeight(), geometry.getWidth());
+    }
+
+    //labelled nodes inside the list that are unique on the snapshot, keyed by their labels, with the y of their center.
+    private static Map<String, Integer> anchors(ScreenSnapshot snapshot, Rectangle list) {
+        Map<String, Integer> anchors = new HashMap<>();
+        Set<String> duplicates = new HashSet<>();
+        for (ScreenSnapshot.SnapshotNode node : snapshot.getNodes()) {
+            String text = node.getText();
+            String description = node.getAttribute("content-desc");
+            if ((text == null || text.isEmpty()) && (description == null || description.isEmpty())) {
+                continue;
+            }
+            Point center = node.getCenter();
+            if (center == null || !node.isDisplayed() || center.getY() < list.getY() || center.getY() > list.getY() + list.getHeight()) {
+                continue;
+            }
+            String key = node.getTagName() + "|" + node.getAttribute("resource-id") + "|" + description + "|" + text;
+            if (anchors.put(key, center.getY()) != null) {
+                duplicates.add(key);
+            }
+        }
+        anchors.keySet().removeAll(duplicates);
+        return anchors;
+    }
+}
@@ -0,0 +1,301 @@
+package company.utils;
+
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.Channels;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * AdbClient class talks to the adb server over its TCP protocol (port 5037) instead of forking 'adb' processes.
+ * It supports host:devices, host:track-devices, shell, exec-out and sync (push) services, plus 'emu kill' through the emulator console.
+ * The adb server closes a connection after every one-shot service, so the connection that is reused is the
+ * track-devices stream: while a tracker is running, {@link #devices()} is answered from its latest snapshot.
+ */
+public class AdbClient {
+
+    public static final int DEFAULT_PORT = 5037;
+    private static final int SYNC_CHUNK_SIZE = 64 * 1024;
+    private static AdbClient instance;
+
+    private final InetSocketAddress serverAddress;
+    private volatile DeviceTracker sharedTracker;
+
+    /**
+     * This is the constructor for the AdbClient class.
+     * @param host This is the host of the adb server.
+     * @param port This is the port of the adb server.
+     */
+    public AdbClient(String host, int port) {
+        this.serverAddress = new InetSocketAddress(host, port);
+    }
+
+    /**
+     * This method is used to get the client for the local adb server. ANDROID_ADB_SERVER_PORT is honoured like the adb binary does.
+     * @return AdbClient This returns the shared client.
+     */
+    public static synchronized AdbClient getInstance() {
+        if (instance == null) {
+            String port = System.getenv("ANDROID_ADB_SERVER_PORT");
+            instance = new AdbClient("127.0.0.1", port != null && !port.trim().isEmpty() ? Integer.parseInt(port.trim()) : DEFAULT_PORT);
+        }
+        return instance;
+    }
+
+    /**
+     * This method is used to list the connected devices, like 'adb devices'.
+     * @return Map This returns serial to state (device, offline, unauthorized...).
+     * @throws IOException If the adb server is not reachable or rejects the request.
+     */
+    public Map<String, String> devices() throws IOException {
+        DeviceTracker tracker = sharedTracker;
+        if (tracker != null && tracker.isOpen() && tracker.latest != null) {
+            return tracker.latest;
+        }
+        try (SocketChannel channel = connect()) {
+            sendRequest(channel, "host:devices");
+            return parseDeviceList(readLengthPrefixed(channel));
+        }
+    }
+
+    /**
+     * This method is used to follow device changes, like 'adb track-devices'.
+     * The listener is called on a daemon thread with the full device list every time it changes.
+     * The first tracker opened is also used to answer {@link #devices()} without new connections.
+     * @param listener This is called with serial to state for each update.
+     * @return DeviceTracker This returns the tracker, close it to stop following.
+     * @throws IOException If the adb server is not reachable or rejects the request.
+     */
+    public DeviceTracker trackDevices(Consumer<Map<String, String>> listener) throws IOException {
+        SocketChannel channel = connect();
+        try {
+            sendRequest(channel, "host:track-devices");
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        DeviceTracker tracker = new DeviceTracker(channel, listener);
+        synchronized (this) {
+            if (sharedTracker == null || !sharedTracker.isOpen()) {
+                sharedTracker = tracker;
+            }
+        }
+        tracker.start();
+        return tracker;
+    }
+
+    /**
+     * This method is used to run a shell command on the device and read all of its output, like 'adb -s serial shell cmd'.
+     * @param serial This is the device serial (udid).
+     * @param command This is the shell command to run.
+     * @return String This returns the command output with carriage returns removed.
+     * @throws IOException If the device is not available or the command could not be started.
+     */
+    public String shell(String serial, String command) throws IOException {
+        try (InputStream in = openDeviceService(serial, "shell:" + command)) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8).replace("\r", "");
+        }
+    }
+
+    /**
+     * This method is used to open a raw binary stream of a command's stdout, like 'adb -s serial exec-out cmd'.
+     * @param serial This is the device serial (udid).
+     * @param command This is the command to run.
+     * @return InputStream This returns the stream of the command's output, the caller must close it.
+     * @throws IOException If the device is not available or the command could not be started.
+     */
+    public InputStream execOut(String serial, String command) throws IOException {
+        return openDeviceService(serial, "exec:" + command);
+    }
+
+    /**
+     * This method is used to copy bytes to a file on the device over the sync service, like 'adb -s serial push'.
+     * @param serial This is the device serial (udid).
+     * @param data This is the file content.
+     * @param remotePath This is the absolute path of the file on the device.
+     * @param mode This is the unix file mode, e.g. 0644.
+     * @throws IOException If the device is not available or rejects the file.
+     */
+    public void push(String serial, byte[] data, String remotePath, int mode) throws IOException {
+        try (SocketChannel channel = connect()) {
+            sendRequest(channel, "host:transport:" + serial);
+            sendRequest(channel, "sync:");
+            writeSyncPacket(channel, "SEND", (remotePath + "," + mode).getBytes(StandardCharsets.UTF_8), 0, -1);
+            for (int offset = 0; offset < data.length; offset += SYNC_CHUNK_SIZE) {
+                writeSyncPacket(channel, "DATA", data, offset, Math.min(SYNC_CHUNK_SIZE, data.length - offset));
+            }
+            writeSyncPacket(channel, "DONE", null, 0, (int) (System.currentTimeMillis() / 1000));
+            ByteBuffer status = ByteBuffer.wrap(readFully(channel, 8)).order(ByteOrder.LITTLE_ENDIAN);
+            String id = new String(status.array(), 0, 4, StandardCharsets.US_ASCII);
+            if (!id.equals("OKAY")) {
+                String message = new String(readFully(channel, status.getInt(4)), StandardCharsets.UTF_8);
+                throw new IOException("adb push to " + remotePath + " failed : " + message);
+            }
+            writeSyncPacket(channel, "QUIT", null, 0, 0);
+        }
+    }
+
+    /**
+     * This method is used to kill an emulator through its console, like 'adb -s emulator-5554 emu kill'.
+     * @param serial This is the emulator serial, e.g. emulator-5554.
+     * @throws IOException If the console is not reachable.
+     */
+    public void emuKill(String serial) throws IOException {
+        int consolePort = Integer.parseInt(serial.substring(serial.lastIndexOf('-') + 1));
+        StringBuilder commands = new StringBuilder();
+        Path tokenFile = Paths.get(System.getProperty("user.home"), ".emulator_console_auth_token");
+        if (Files.exists(tokenFile)) {
+            commands.append("auth ").append(Files.readString(tokenFile).trim()).append("\n");
+        }
+        commands.append("kill\n");
+        try (SocketChannel channel = SocketChannel.open(new InetSocketAddress(serverAddress.getHostString(), consolePort))) {
+            writeFully(channel, commands.toString());
+            //drain until the emulator closes the console.
+            ByteBuffer buffer = ByteBuffer.allocate(1024);
+            while (channel.read(buffer) >= 0) {
+                buffer.clear();
+            }
+        }
+    }
+
+    private InputStream openDeviceService(String serial, String service) throws IOException {
+        SocketChannel channel = connect();
+        try {
+            sendRequest(channel, "host:transport:" + serial);
+            sendRequest(channel, service);
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+        return Channels.newInputStream(channel);
+    }
+
+    private SocketChannel connect() throws IOException {
+        SocketChannel channel = SocketChannel.open(serverAddress);
+        channel.configureBlocking(true);
+        return channel;
+    }
+
+    private static void sendRequest(SocketChannel channel, String request) throws IOException {
+        byte[] payload = request.getBytes(StandardCharsets.UTF_8);
+        writeFully(channel, String.format("%04x", payload.length) + request);
+        String status = new String(readFully(channel, 4), StandardCharsets.US_ASCII);
+        if (status.equals("FAIL")) {
+            throw new IOException("adb rejected '" + request + "' : " + readLengthPrefixed(channel));
+        } else if (!status.equals("OKAY")) {
+            throw new IOException("Unexpected adb response '" + status + "' for '" + request + "'");
+        }
+    }
+
+    private static void writeFully(SocketChannel channel, String data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    //sync packets are a 4 byte id and a little endian length (or mtime for DONE), followed by the payload.
+    private static void writeSyncPacket(SocketChannel channel, String id, byte[] payload, int offset, int lengthOrValue) throws IOException {
+        int length = payload == null ? 0 : (lengthOrValue < 0 ? payload.length : lengthOrValue);
+        ByteBuffer buffer = ByteBuffer.allocate(8 + length).order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put(id.getBytes(StandardCharsets.US_ASCII));
+        buffer.putInt(payload == null ? lengthOrValue : length);
+        if (payload != null) {
+            buffer.put(payload, offset, length);
+        }
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] readFully(SocketChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("adb connection closed");
+            }
+        }
+        return buffer.array();
+    }
+
+    private static String readLengthPrefixed(SocketChannel channel) throws IOException {
+        int length = Integer.parseInt(new String(readFully(channel, 4), StandardCharsets.US_ASCII), 16);
+        return new String(readFully(channel, length), StandardCharsets.UTF_8);
+    }
+
+    private static Map<String, String> parseDeviceList(String deviceList) {
+        Map<String, String> devices = new LinkedHashMap<>();
+        for (String line : deviceList.split("\n")) {
+            String[] parts = line.trim().split("\\s+");
+            if (parts.length >= 2) {
+                devices.put(parts[0], parts[1]);
+            }
+        }
+        return Collections.unmodifiableMap(devices);
+    }
+
+    /**
+     * DeviceTracker class follows an open host:track-devices connection on a daemon thread.
+     */
+    public static class DeviceTracker implements Closeable {
+        private final SocketChannel channel;
+        private final Consumer<Map<String, String>> listener;
+        private volatile Map<String, String> latest;
+
+        private DeviceTracker(SocketChannel channel, Consumer<Map<String, String>> listener) {
+            this.channel = channel;
+            this.listener = listener;
+        }
+
+        private void start() {
+            Thread reader = new Thread(() -> {
+                try {
+                    while (channel.isOpen()) {
+                        latest = parseDeviceList(readLengthPrefixed(channel));
+                        listener.accept(latest);
+                    }
+                } catch (IOException e) {
+                    if (channel.isOpen())
+                        LoggerUtilities.error("adb track-devices stream closed : " + e.getMessage());
+                } finally {
+                    quietClose();
+                }
+            }, "adb-track-devices");
+            reader.setDaemon(true);
+            reader.start();
+        }
+
+        /**
+         * This method is used to check if the tracker connection is still open.
+         * @return boolean This returns true while updates are being received.
+         */
+        public boolean isOpen() {
+            return channel.isOpen();
+        }
+
+        @Override
+        public void close() {
+            quietClose();
+        }
+
+        private void quietClose() {
+            try {
+                channel.close();
+            } catch (IOException ignored) {
+            }
+        }
+    }
+}
@@ -49,7 +49,7 @@ public class AppInteractions {
         if(BasePage.getPlatform().equalsIgnoreCase("android")){
             BasePage.wait(3);
             String packageName = ReadProperties.getValue("androidPackage");
-            Runtime.getRuntime().exec("adb -s " + deviceUdid + " shell pm grant " + packageName + " android.permission.POST_NOTIFICATIONS");
+            AdbClient.getInstance().shell(deviceUdid, "pm grant " + packageName + " android.permission.POST_NOTIFICATIONS");
         }
     }
 
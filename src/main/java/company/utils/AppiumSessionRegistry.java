@@ -0,0 +1,114 @@
+package company.utils;
+
+import org.json.JSONArray;
+import org.json.JSONObject;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * AppiumSessionRegistry class is a shared in-JVM client for the Appium sessions endpoint.
+ * It keeps one snapshot of the running sessions, indexed by device udid, and reuses it for a short time
+ * so that a device discovery pass makes a single HTTP call regardless of the number of devices.
+ */
+public class AppiumSessionRegistry {
+
+    private static final Duration SNAPSHOT_TTL = Duration.ofSeconds(2);
+    private static final Duration HTTP_TIMEOUT = Duration.ofSeconds(5);
+    private static final String[] SESSION_ENDPOINTS = {"/sessions", "/appium/sessions"};
+    private static AppiumSessionRegistry instance;
+
+    private final HttpClient httpClient;
+    private final String appiumUrl;
+    private Map<String, String> sessionsByUdid = Collections.emptyMap();
+    private long snapshotTakenAt;
+
+    /**
+     * This is the constructor for the AppiumSessionRegistry class.
+     * @param appiumUrl This is the base URL of the Appium server, e.g. http://127.0.0.1:4723
+     */
+    public AppiumSessionRegistry(String appiumUrl) {
+        this.appiumUrl = appiumUrl;
+        this.httpClient = HttpClient.newBuilder().connectTimeout(HTTP_TIMEOUT).build();
+    }
+
+    /**
+     * This method is used to get the registry for the configured Appium server.
+     * @return AppiumSessionRegistry This returns the shared registry instance.
+     */
+    public static synchronized AppiumSessionRegistry getInstance() {
+        if (instance == null) {
+            String appium_host = (System.getProperty("appium_host") != null && System.getProperty("appium_host").trim().length() > 0) ? System.getProperty("appium_host").trim() : ReadProperties.getValue("appium_host");
+            String appium_port = (System.getProperty("appium_port") != null && System.getProperty("appium_port").trim().length() > 0) ? System.getProperty("appium_port").trim() : ReadProperties.getValue("appium_port");
+            instance = new AppiumSessionRegistry("http://" + appium_host + ":" + appium_port);
+        }
+        return instance;
+    }
+
+    /**
+     * This method is used to get the udid to session id index, fetching a new snapshot only when the cached one is older than the TTL.
+     * @return Map This returns the index of lower-cased udid to session id.
+     */
+    public synchronized Map<String, String> getSessionsByUdid() {
+        if (System.currentTimeMillis() - snapshotTakenAt > SNAPSHOT_TTL.toMillis()) {
+            return refresh();
+        }
+        return sessionsByUdid;
+    }
+
+    /**
+     * This method is used to fetch a fresh snapshot of the running sessions. Call it once at the start of a discovery pass.
+     * @return Map This returns the index of lower-cased udid to session id.
+     */
+    public synchronized Map<String, String> refresh() {
+        Map<String, String> snapshot = new HashMap<>();
+        try {
+            JSONArray sessions = fetchSessions();
+            for (int i = 0; i < sessions.length(); i++) {
+                JSONObject session = sessions.getJSONObject(i);
+                JSONObject capabilities = session.optJSONObject("capabilities");
+                String deviceInUse = capabilities == null ? "" : capabilities.optString("udid", "");
+                if (!deviceInUse.isEmpty()) {
+                    snapshot.put(deviceInUse.toLowerCase(), session.optString("id", ""));
+                }
+            }
+            if (!snapshot.isEmpty())
+                LoggerUtilities.info("Devices in use: " + snapshot.keySet());
+        } catch (Exception e) {
+            LoggerUtilities.error("Error in reading Appium sessions from " + appiumUrl + " : " + e.getMessage());
+        }
+        sessionsByUdid = Collections.unmodifiableMap(snapshot);
+        snapshotTakenAt = System.currentTimeMillis();
+        return sessionsByUdid;
+    }
+
+    /**
+     * This method is used to check if a device has a running Appium session.
+     * @param udid This is the unique device identifier.
+     * @return boolean This returns true if a session exists for the device.
+     */
+    public boolean isDeviceInUse(String udid) {
+        return udid != null && getSessionsByUdid().containsKey(udid.toLowerCase());
+    }
+
+    private JSONArray fetchSessions() throws Exception {
+        for (String endpoint : SESSION_ENDPOINTS) {
+            HttpRequest request = HttpRequest.newBuilder(URI.create(appiumUrl + endpoint))
+                    .timeout(HTTP_TIMEOUT)
+                    .GET()
+                    .build();
+            HttpResponse<String> response = httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+            if (response.statusCode() == 200) {
+                return new JSONObject(response.body()).getJSONArray("value");
+            }
+        }
+        //neither endpoint is served, treat as no sessions.
+        return new JSONArray();
+    }
+}
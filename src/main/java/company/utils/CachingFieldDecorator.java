@@ -0,0 +1,189 @@
+package company.utils;
+
+import company.base.BasePage;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.internal.CapabilityHelpers;
+import io.appium.java_client.pagefactory.AppiumElementLocatorFactory;
+import io.appium.java_client.pagefactory.AppiumFieldDecorator;
+import io.appium.java_client.pagefactory.DefaultElementByBuilder;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.WrapsElement;
+import org.openqa.selenium.interactions.Locatable;
+import org.openqa.selenium.support.pagefactory.ElementLocator;
+import org.openqa.selenium.support.pagefactory.FieldDecorator;
+
+import java.lang.reflect.Field;
+import java.lang.reflect.InvocationHandler;
+import java.lang.reflect.InvocationTargetException;
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.time.Duration;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * CachingFieldDecorator class is a drop-in for AppiumFieldDecorator that looks every WebElement field of a page object up once.
+ * The resolved element is kept by the page instance and reused by the following calls, so a getTextFromAttribute
+ * (wait, then attribute read) costs one lookup instead of one per call. A cached element is dropped and looked up again
+ * when the device reports it stale, and all cached elements of the thread are dropped when the screen changed
+ * (see {@link #screenChanged()}). Lists and widgets are decorated by AppiumFieldDecorator as before.
+ * Sessions run without an implicit wait, so a lookup waits up to {@link BasePage#getLookupTimeout()} on the client,
+ * except inside a probe or the polls of a wait (see {@link BasePage#isProbing()}), where it fails at once.
+ * Hits and misses are counted per page class, see {@link #getSummary()}.
+ */
+public class CachingFieldDecorator implements FieldDecorator {
+
+    private static final Map<String, CacheStats> statsByPage = new ConcurrentHashMap<>();
+    private static final ThreadLocal<Long> screenEpoch = ThreadLocal.withInitial(() -> 0L);
+
+    private final AppiumFieldDecorator appiumFieldDecorator;
+    private final AppiumElementLocatorFactory locatorFactory;
+    private final AppiumElementLocatorFactory probeLocatorFactory;
+    private final CacheStats stats;
+    private final boolean enabled;
+
+    /**
+     * This is the constructor for the CachingFieldDecorator class.
+     * @param driver This is the driver of the current thread.
+     * @param pageClass This is the page object class, used for the hit rate report.
+     */
+    public CachingFieldDecorator(AppiumDriver driver, Class<?> pageClass) {
+        this.appiumFieldDecorator = new AppiumFieldDecorator(driver, BasePage.getLookupTimeout());
+        String enableElementCache = (System.getProperty("enableElementCache") != null && System.getProperty("enableElementCache").trim().length() > 0) ? System.getProperty("enableElementCache").trim() : ReadProperties.getValue("enableElementCache");
+        this.enabled = Boolean.parseBoolean(enableElementCache);
+        String automationName = CapabilityHelpers.getCapability(driver.getCapabilities(), "automationName", String.class);
+        this.locatorFactory = new AppiumElementLocatorFactory(driver, BasePage.getLookupTimeout(),
+                new DefaultElementByBuilder(BasePage.getPlatform(), automationName));
+        this.probeLocatorFactory = new AppiumElementLocatorFactory(driver, Duration.ZERO,
+                new DefaultElementByBuilder(BasePage.getPlatform(), automationName));
+        this.stats = statsByPage.computeIfAbsent(pageClass.getSimpleName(), k -> new CacheStats());
+    }
+
+    @Override
+    public Object decorate(ClassLoader loader, Field field) {
+        if (field.getType() != WebElement.class) {
+            return appiumFieldDecorator.decorate(loader, field);
+        }
+        ElementLocator locator = locatorFactory.createLocator(field);
+        if (locator == null) {
+            return null;
+        }
+        return Proxy.newProxyInstance(loader, new Class<?>[]{WebElement.class, WrapsElement.class, Locatable.class},
+                new CachedElementHandler(locator, probeLocatorFactory.createLocator(field), enabled ? stats : null));
+    }
+
+    /**
+     * This method is used to tell the cache that the screen of the current thread changed (navigation, scrolling),
+     * so elements resolved before are looked up again on their next use.
+     */
+    public static void screenChanged() {
+        screenEpoch.set(screenEpoch.get() + 1);
+    }
+
+    /**
+     * This method is used to get the cache metrics for the report.
+     * @return String This returns the hit rate per page class, e.g. "Login 3/6 (50%), Products 2/3 (66%)".
+     */
+    public static String getSummary() {
+        if (statsByPage.isEmpty()) {
+            return "no cached pages";
+        }
+        StringBuilder summary = new StringBuilder();
+        for (Map.Entry<String, CacheStats> entry : new TreeMap<>(statsByPage).entrySet()) {
+            long hits = entry.getValue().hits.get();
+            long uses = hits + entry.getValue().misses.get();
+            if (summary.length() > 0) {
+                summary.append(", ");
+            }
+            summary.append(entry.getKey()).append(' ').append(hits).append('/').append(uses)
+                    .append(" (").append(uses == 0 ? 0 : hits * 100 / uses).append("%)");
+            if (entry.getValue().stale.get() > 0) {
+                summary.append(" stale=").append(entry.getValue().stale.get());
+            }
+        }
+        return summary.toString();
+    }
+
+    /**
+     * CacheStats class counts the cache use of one page class.
+     */
+    private static class CacheStats {
+        private final AtomicLong hits = new AtomicLong();
+        private final AtomicLong misses = new AtomicLong();
+        private final AtomicLong stale = new AtomicLong();
+    }
+
+    /**
+     * CachedElementHandler class is the proxy behind one WebElement field. Without stats the element is looked up on every use.
+     */
+    private static class CachedElementHandler implements InvocationHandler {
+        private final ElementLocator locator;
+        private final ElementLocator probeLocator;
+        private final CacheStats stats;
+        private WebElement cached;
+        private long cachedEpoch;
+
+        CachedElementHandler(ElementLocator locator, ElementLocator probeLocator, CacheStats stats) {
+            this.locator = locator;
+            this.probeLocator = probeLocator;
+            this.stats = stats;
+        }
+
+        @Override
+        public Object invoke(Object proxy, Method method, Object[] args) throws Throwable {
+            switch (method.getName()) {
+                //toString must not look the element up, waits use it as their key.
+                case "toString":
+                    return locator.toString();
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                case "equals":
+                    return proxy == args[0];
+                case "getWrappedElement":
+                    return resolve();
+                default:
+                    break;
+            }
+            try {
+                return method.invoke(resolve(), args);
+            } catch (InvocationTargetException e) {
+                if (!(e.getCause() instanceof StaleElementReferenceException)) {
+                    throw e.getCause();
+                }
+                if (stats != null) {
+                    stats.stale.incrementAndGet();
+                }
+                cached = null;
+            }
+            try {
+                return method.invoke(resolve(), args);
+            } catch (InvocationTargetException e) {
+                if (e.getCause() instanceof StaleElementReferenceException) {
+                    cached = null;
+                }
+                throw e.getCause();
+            }
+        }
+
+        private WebElement resolve() {
+            ElementLocator lookup = BasePage.isProbing() ? probeLocator : locator;
+            if (stats == null) {
+                return lookup.findElement();
+            }
+            long epoch = screenEpoch.get();
+            if (cached != null && cachedEpoch == epoch) {
+                stats.hits.incrementAndGet();
+                return cached;
+            }
+            stats.misses.incrementAndGet();
+            cached = null;
+            WebElement element = lookup.findElement();
+            cached = element;
+            cachedEpoch = epoch;
+            return element;
+        }
+    }
+}
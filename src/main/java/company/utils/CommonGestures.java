@@ -1,6 +1,5 @@
 package company.utils;
 
-import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
 import company.base.BasePage;
 import io.appium.java_client.AppiumBy;
@@ -8,18 +7,12 @@ import io.appium.java_client.android.AndroidDriver;
 import io.appium.java_client.android.nativekey.AndroidKey;
 import io.appium.java_client.android.nativekey.KeyEvent;
 import org.openqa.selenium.*;
-import org.openqa.selenium.interactions.Pause;
-import org.openqa.selenium.interactions.PointerInput;
-import org.openqa.selenium.interactions.Sequence;
 import org.openqa.selenium.remote.RemoteWebElement;
 
 import java.time.Duration;
-import java.util.Arrays;
 import java.util.HashMap;
 
 import static java.time.Duration.ofMillis;
-import static org.openqa.selenium.interactions.PointerInput.MouseButton.LEFT;
-import static org.openqa.selenium.interactions.PointerInput.Origin.viewport;
 
 /**
  * CommonGestures class provides methods for performing common gestures on the application.
@@ -28,6 +21,7 @@ import static org.openqa.selenium.interactions.PointerInput.Origin.viewport;
 public class CommonGestures {
     static double SCROLL_RATIO = 0.6;
     static Duration SCROLL_DUR = Duration.ofMillis(700);
+    static Duration SWIPE_GAP = Duration.ofMillis(100);
 
     /**
      * ScrollDirection enum represents the direction of scrolling.
@@ -36,122 +30,101 @@ public class CommonGestures {
         UP, DOWN, LEFT, RIGHT
     }
 
-    /**
-     * This method checks if the current page source is not the end of the page.
-     * @return boolean This returns whether the current page source is not the end of the page.
-     */
-    private static boolean isNotEndOfPage(String previousPageSource) {
-        return !previousPageSource.equals(BasePage.getDriver().getPageSource());
-    }
-
     /**
      * This method scrolls down and clicks on the given element.
+     * The search runs as a probe, so every scroll step that misses the element costs no extra time.
      * @param element This is the element to click on.
      * @param message This is the message to log.
      */
     public static void scrollDownAndClick(WebElement element, String message) {
-        String previousPageSource = "";
-        boolean clickflag = false;
-
-        while (isNotEndOfPage(previousPageSource)) {
-            previousPageSource = BasePage.getDriver().getPageSource();
-            try {
-                element.click();
-                LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success : " + element);
-                clickflag = true;
-                break;
+        BasePage.probe(() -> {
+            PageFingerprint pageState = new PageFingerprint();
+            boolean clickflag = false;
 
-            } catch (NoSuchElementException e) {
+            while (pageState.hasChanged()) {
+                if (BasePage.isPresent(element)) {
+                    element.click();
+                    LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success : " + element);
+                    clickflag = true;
+                    break;
+                }
                 scroll(ScrollDirection.DOWN, SCROLL_RATIO);
-
             }
-        }
-        if(!isNotEndOfPage(previousPageSource) && !clickflag) {
-            throw new java.util.NoSuchElementException();
-        }
+            if(!clickflag) {
+                throw new java.util.NoSuchElementException();
+            }
+        });
     }
 
     public static void scrollDownAndClick(WebElement element, String message, boolean extraScroll, double scrollRatio) {
-        String previousPageSource = "";
-        boolean clickflag = false;
-        while (isNotEndOfPage(previousPageSource)) {
-            previousPageSource = BasePage.getDriver().getPageSource();
-            try {
-                if(element.isDisplayed() && extraScroll)
-                {
-                    swipeDirection("down", scrollRatio);
-                    element.click();
+        BasePage.probe(() -> {
+            PageFingerprint pageState = new PageFingerprint();
+            boolean clickflag = false;
+            while (pageState.hasChanged()) {
+                if (BasePage.isPresent(element)) {
+                    if (extraScroll) {
+                        swipeDirection("down", scrollRatio);
+                        element.click();
+                    }
+                    LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success : " + element);
+                    clickflag = true;
+                    break;
                 }
-                LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success : " + element);
-                clickflag = true;
-                break;
-            } catch (NoSuchElementException e) {
                 swipeDirection("down", scrollRatio);
             }
-        }
-        if(!isNotEndOfPage(previousPageSource) && !clickflag) {
-            throw new java.util.NoSuchElementException();
-        }
+            if(!clickflag) {
+                throw new java.util.NoSuchElementException();
+            }
+        });
     }
 
 
     public static void scrollAndClickAmongTwoElements(WebElement primaryElement, WebElement secondaryElement, String message) {
-        String previousPageSource = "";
-        boolean clickSuccessful = false;
-
-        while (isNotEndOfPage(previousPageSource)) {
-            previousPageSource = BasePage.getDriver().getPageSource();
-
-            if (tryClick(primaryElement, message) || tryClick(secondaryElement, message)) {
-                clickSuccessful = true;
-                break;
+        BasePage.probe(() -> {
+            PageFingerprint pageState = new PageFingerprint();
+            boolean clickSuccessful = false;
+
+            while (pageState.hasChanged()) {
+                if (tryClick(BasePage.firstPresent(primaryElement, secondaryElement), message)) {
+                    clickSuccessful = true;
+                    break;
+                }
+                scroll(ScrollDirection.DOWN, SCROLL_RATIO);
             }
-            scroll(ScrollDirection.DOWN, SCROLL_RATIO);
-        }
 
-        if (!clickSuccessful) {
-            throw new java.util.NoSuchElementException("Could not find clickable element: " + message);
-        }
+            if (!clickSuccessful) {
+                throw new java.util.NoSuchElementException("Could not find clickable element: " + message);
+            }
+        });
     }
 
     public static void scrollAndClickAmongTwoElements(WebElement primaryElement, WebElement secondaryElement, String message, double scrollRatio) {
-        String previousPageSource = "";
-        boolean clickSuccessful = false;
-
-        while (isNotEndOfPage(previousPageSource)) {
-            previousPageSource = BasePage.getDriver().getPageSource();
-
-            boolean primaryVisible = false;
-            boolean secondaryVisible = false;
+        BasePage.probe(() -> {
+            PageFingerprint pageState = new PageFingerprint();
+            boolean clickSuccessful = false;
 
-            try {
-                primaryVisible = primaryElement.isDisplayed();
-            } catch (Exception ignored) {}
+            while (pageState.hasChanged()) {
+                if (BasePage.firstPresent(primaryElement, secondaryElement) != null) {
+                    swipeDirection("down", scrollRatio);
+                }
 
-            try {
-                secondaryVisible = secondaryElement.isDisplayed();
-            } catch (Exception ignored) {}
+                if (tryClick(BasePage.firstPresent(primaryElement, secondaryElement), message)) {
+                    clickSuccessful = true;
+                    break;
+                }
 
-            if (primaryVisible || secondaryVisible) {
                 swipeDirection("down", scrollRatio);
             }
 
-            if (tryClick(primaryElement, message) || tryClick(secondaryElement, message)) {
-                clickSuccessful = true;
-                break;
+            if (!clickSuccessful) {
+                throw new java.util.NoSuchElementException("Could not find clickable element: " + message);
             }
-
-            swipeDirection("down", scrollRatio);
-        }
-
-        if (!clickSuccessful) {
-            throw new java.util.NoSuchElementException("Could not find clickable element: " + message);
-        }
+        });
     }
 
     private static boolean tryClick(WebElement element, String message) {
         try {
-            if (element != null && element.isDisplayed()) {
+            if (element != null) {
                 swipeDirection("down", 0.4); //do a very small scroll to avoid AI Assistant click.
                 element.click();
                 LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success: " + message);
@@ -163,23 +136,23 @@ public class CommonGestures {
     }
 
     public static void scrollUpAndClick(WebElement element) {
-        String previousPageSource = "";
-        boolean clickflag = false;
+        BasePage.probe(() -> {
+            PageFingerprint pageState = new PageFingerprint();
+            boolean clickflag = false;
 
-        while (isNotEndOfPage(previousPageSource)) {
-            previousPageSource = BasePage.getDriver().getPageSource();
-            try {
-                element.click();
-                LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success : " + element);
-                clickflag = true;
-                break;
-            } catch (NoSuchElementException e) {
+            while (pageState.hasChanged()) {
+                if (BasePage.isPresent(element)) {
+                    element.click();
+                    LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success : " + element);
+                    clickflag = true;
+                    break;
+                }
                 scroll(ScrollDirection.UP, SCROLL_RATIO);
             }
-        }
-        if(!isNotEndOfPage(previousPageSource) && !clickflag) {
-            throw new java.util.NoSuchElementException();
-        }
+            if(!clickflag) {
+                throw new java.util.NoSuchElementException();
+            }
+        });
     }
 
     /**
@@ -188,24 +161,7 @@ public class CommonGestures {
      * @param message This is the message to log.
      */
     public static void scrollDownUntilElementIsVisible(WebElement element, String message) {
-        String previousPageSource = "";
-        boolean clickflag = false;
-
-        while (isNotEndOfPage(previousPageSource)) {
-            previousPageSource = BasePage.getDriver().getPageSource();
-            try {
-                element.isDisplayed();
-                LoggerUtilities.infoLoggerInFileAndReport("Element displayed success : " + element);
-                clickflag = true;
-                break;
-            } catch (NoSuchElementException e) {
-                scroll(ScrollDirection.DOWN, SCROLL_RATIO);
-            }
-        }
-
-        if(!isNotEndOfPage(previousPageSource) && !clickflag) {
-            throw new java.util.NoSuchElementException();
-        }
+        scrollUntilElementIsVisible(element, "down", SCROLL_RATIO);
     }
 
     /**
@@ -213,54 +169,40 @@ public class CommonGestures {
      * @param element This is the element to make visible.
      */
     public static void scrollUpUntilElementIsVisible(WebElement element) {
-        String previousPageSource = "";
-        boolean clickflag = false;
-
-        while (isNotEndOfPage(previousPageSource)) {
-            previousPageSource = BasePage.getDriver().getPageSource();
-            try {
-                element.isDisplayed();
-                LoggerUtilities.infoLoggerInFileAndReport("Element displayed success : " + element);
-                clickflag = true;
-                break;
-            } catch (NoSuchElementException e) {
-                scroll(ScrollDirection.UP, SCROLL_RATIO);
-            }
-        }
-
-        if(!isNotEndOfPage(previousPageSource) && !clickflag) {
-            throw new java.util.NoSuchElementException();
-        }
+        scrollUntilElementIsVisible(element, "up", SCROLL_RATIO);
     }
+
     public static void scrollUpUntilElementIsVisible(WebElement element,double scrollRatio) {
-        String previousPageSource = "";
-        boolean clickflag = false;
+        scrollUntilElementIsVisible(element, "up", scrollRatio);
+    }
 
-        while (isNotEndOfPage(previousPageSource)) {
-            previousPageSource = BasePage.getDriver().getPageSource();
-            try {
-                element.isDisplayed();
-                LoggerUtilities.infoLoggerInFileAndReport("Element displayed success : " + element);
-                clickflag = true;
-                break;
-            } catch (NoSuchElementException e) {
-               swipeDirection("up", scrollRatio);
+    private static void scrollUntilElementIsVisible(WebElement element, String direction, double scrollRatio) {
+        BasePage.probe(() -> {
+            PageFingerprint pageState = new PageFingerprint();
+            boolean clickflag = false;
+
+            while (pageState.hasChanged()) {
+                if (BasePage.isPresent(element)) {
+                    LoggerUtilities.infoLoggerInFileAndReport("Element displayed success : " + element);
+                    clickflag = true;
+                    break;
+                }
+                swipeDirection(direction, scrollRatio);
             }
-        }
 
-        if(!isNotEndOfPage(previousPageSource) && !clickflag) {
-            throw new java.util.NoSuchElementException();
-        }
+            if(!clickflag) {
+                throw new java.util.NoSuchElementException();
+            }
+        });
     }
 
     /**
      * This method scrolls until the end of the page.
      */
     public static void scrollUntilEndOfPage() {
-        String previousPageSource = "";
+        PageFingerprint pageState = new PageFingerprint();
 
-        while (isNotEndOfPage(previousPageSource)) {
-            previousPageSource = BasePage.getDriver().getPageSource();
+        while (pageState.hasChanged()) {
             try {
                 scroll(ScrollDirection.DOWN, SCROLL_RATIO);
                 LoggerUtilities.infoLoggerInFileAndReport("Scrolling until end of page");
@@ -270,15 +212,25 @@ public class CommonGestures {
         }
     }
 
+    /**
+     * This method scrolls down the given number of times. All swipes are sent to the device in one actions call.
+     * @param count This is the number of swipes.
+     * @param scrollRatio This is the scroll ratio.
+     */
     public static void scrollWithCount(int count, double scrollRatio) {
-        int startNum = 0;
-        while (startNum < count) {
-            try {
-                swipeDirection("down", scrollRatio);
-                LoggerUtilities.infoLoggerInFileAndReport("Scroll " + ++startNum + "/" + count);
-            } catch (Exception e) {
-                LoggerUtilities.info(e.getMessage());
+        Point[] points = swipePoints("down", scrollRatio);
+        Gesture gesture = Gesture.create();
+        for (int i = 0; i < count; i++) {
+            if (i > 0) {
+                gesture.pause(SWIPE_GAP);
             }
+            gesture.swipe(points[0], points[1], SCROLL_DUR);
+        }
+        try {
+            gesture.perform();
+            LoggerUtilities.infoLoggerInFileAndReport("Scroll " + count + "/" + count);
+        } catch (Exception e) {
+            LoggerUtilities.info(e.getMessage());
         }
     }
 
@@ -289,11 +241,18 @@ public class CommonGestures {
      */
 
     public static void swipeDirection(String direction, double scrollRatio) {
+        Point[] points = swipePoints(direction, scrollRatio);
+        if (points != null) {
+            swipe(points[0], points[1], SCROLL_DUR);
+        }
+    }
+
+    private static Point[] swipePoints(String direction, double scrollRatio) {
         if (scrollRatio <= 0)
         {
             scrollRatio = SCROLL_RATIO;
         }
-        Dimension size = BasePage.getDriver().manage().window().getSize();
+        Dimension size = ScreenGeometry.current().getWindowSize();
         Point midPoint = new Point((int) (size.width * 0.4), (int) (size.height * 0.4));
         int bottom = midPoint.y + (int) (midPoint.y * scrollRatio);
         int top = midPoint.y - (int) (midPoint.y * scrollRatio);
@@ -301,14 +260,15 @@ public class CommonGestures {
         int right = midPoint.x + (int) (midPoint.x * scrollRatio);
 
         if (direction.equalsIgnoreCase("up")) {
-            swipe(new Point(midPoint.x, top), new Point(midPoint.x, bottom), SCROLL_DUR);
+            return new Point[]{new Point(midPoint.x, top), new Point(midPoint.x, bottom)};
         } else if (direction.equalsIgnoreCase("down")) {
-            swipe(new Point(midPoint.x, bottom), new Point(midPoint.x, top), SCROLL_DUR);
+            return new Point[]{new Point(midPoint.x, bottom), new Point(midPoint.x, top)};
         } else if (direction.equalsIgnoreCase("left")) {
-            swipe(new Point(left, midPoint.y), new Point(right, midPoint.y), SCROLL_DUR);
+            return new Point[]{new Point(left, midPoint.y), new Point(right, midPoint.y)};
         } else if (direction.equalsIgnoreCase("right")){
-            swipe(new Point(right, midPoint.y), new Point(left, midPoint.y), SCROLL_DUR);
+            return new Point[]{new Point(right, midPoint.y), new Point(left, midPoint.y)};
         }
+        return null;
     }
 
     /**
@@ -317,9 +277,7 @@ public class CommonGestures {
      * @return Point This returns the center of the element.
      */
     public static Point getCenterOfElement(WebElement e) {
-        Point location = e.getLocation();
-        Dimension size = e.getSize();
-        return new Point(location.getX() + size.getWidth() / 2, location.getY() + size.getHeight() / 2);
+        return ScreenGeometry.getCenter(e);
     }
 
 
@@ -376,14 +334,7 @@ public class CommonGestures {
      * @param duration This is the duration of the swipe.
      */
     public static void swipe(Point start, Point end, Duration duration) {
-        PointerInput input = new PointerInput(PointerInput.Kind.TOUCH, "finger1");
-        Sequence swipe = new Sequence(input, 0);
-        swipe.addAction(input.createPointerMove(Duration.ZERO, viewport(), start.x, start.y));
-        swipe.addAction(input.createPointerDown(LEFT.asArg()));
-
-        swipe.addAction(input.createPointerMove(duration, viewport(), end.x, end.y));
-        swipe.addAction(input.createPointerUp(LEFT.asArg()));
-        BasePage.getDriver().perform(ImmutableList.of(swipe));
+        Gesture.create().swipe(start, end, duration).perform();
     }
 
     /**
@@ -413,15 +364,8 @@ public class CommonGestures {
      * @param y This is the y-coordinate of the location to tap on.
      */
     public static void tapLocation(int x, int y) {
-
-        PointerInput FINGER = new PointerInput(PointerInput.Kind.TOUCH, "finger");
-        Point point = new Point((int) (x), (int) (y));
         try {
-            Sequence tap = new Sequence(FINGER, 1)
-                    .addAction(FINGER.createPointerMove(ofMillis(0), viewport(), point.getX(), point.getY()))
-                    .addAction(FINGER.createPointerDown(LEFT.asArg())).addAction(new Pause(FINGER, ofMillis(200)))
-                    .addAction(FINGER.createPointerUp(LEFT.asArg()));
-            BasePage.getDriver().perform(Arrays.asList(tap));
+            Gesture.create().tap(new Point(x, y)).perform();
         } catch (Exception e) {
             e.printStackTrace();
         }
@@ -456,30 +400,27 @@ public class CommonGestures {
     }
 
     /**
-     * This method scrolls the text into view.
+     * This method scrolls the text into view, with the search running on the device (see {@link ScrollSearch}).
      * @param locatorText This is the text to scroll into view.
+     * @return WebElement This returns the element containing the text.
      */
-    private void scrollTextIntoView(String locatorText) {
-        try {
-            BasePage.getDriver().findElement(AppiumBy.androidUIAutomator("new UiScrollable(new UiSelector().scrollable(true))"
-                    + ".scrollIntoView(new UiSelector().textContains(\"" + locatorText + "\"))"));
-            LoggerUtilities.infoLoggerInFileAndReport( locatorText + " scrolled into view");
-        } catch (Exception e) {
-            LoggerUtilities.errorLoggerInFileAndReport("Failed to scroll and find " + locatorText);
-        }
+    public static WebElement scrollTextIntoView(String locatorText) {
+        By locator = BasePage.getPlatform().equalsIgnoreCase("android")
+                ? AppiumBy.androidUIAutomator("new UiSelector().textContains(\"" + locatorText + "\")")
+                : AppiumBy.iOSNsPredicateString("label CONTAINS \"" + locatorText + "\"");
+        WebElement element = ScrollSearch.scrollIntoView(locator);
+        LoggerUtilities.infoLoggerInFileAndReport( locatorText + " scrolled into view");
+        return element;
     }
     /**
-     * This method scrolls the ID into view.
+     * This method scrolls the ID into view, with the search running on the device (see {@link ScrollSearch}).
      * @param id This is the ID to scroll into view.
+     * @return WebElement This returns the element with the ID.
      */
-    private void scrollIDIntoView(String id) {
-        try {
-            BasePage.getDriver().findElement(AppiumBy.androidUIAutomator("new UiScrollable(new UiSelector().scrollable(true))"
-                    + ".scrollIntoView(new UiSelector().resourceIdMatches(\"" + id + "\"))"));
-            LoggerUtilities.infoLoggerInFileAndReport(id + " scrolled into view");
-        } catch (Exception e) {
-            LoggerUtilities.errorLoggerInFileAndReport("Failed to scroll and find " + id);
-        }
+    public static WebElement scrollIDIntoView(String id) {
+        WebElement element = ScrollSearch.scrollIntoView(AppiumBy.id(id));
+        LoggerUtilities.infoLoggerInFileAndReport(id + " scrolled into view");
+        return element;
     }
 
     public static void pressEnter() {
@@ -494,12 +435,10 @@ public class CommonGestures {
     }
 
     public static int getWidthOfScreen() {
-        Dimension size = BasePage.getDriver().manage().window().getSize();
-        return size.getWidth();
+        return ScreenGeometry.current().getWidth();
     }
 
     public static int getHeightOfScreen() {
-        Dimension size = BasePage.getDriver().manage().window().getSize();
-        return size.getHeight();
+        return ScreenGeometry.current().getHeight();
     }
 }
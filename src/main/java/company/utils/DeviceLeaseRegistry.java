@@ -0,0 +1,265 @@
+package company.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.FileLock;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+
+/**
+ * DeviceLeaseRegistry class hands out exclusive device leases that are shared by every JVM on the host.
+ * Leases are small files in a shared directory, one per udid, carrying the owner and a heartbeat timestamp.
+ * All changes happen while holding a FileChannel lock on the registry file, so several Maven runs on one box
+ * never pick the same device. A lease whose heartbeat is older than {@link #STALE_AFTER} or cannot be read is reclaimed,
+ * which covers JVMs that died without releasing their devices.
+ * Waiting threads of one JVM are served in arrival order. A lease can be parked when its device keeps a pooled session of this JVM,
+ * see {@link #park(String)}.
+ */
+public class DeviceLeaseRegistry {
+
+    public static final Duration STALE_AFTER = Duration.ofSeconds(30);
+    private static final Duration HEARTBEAT_INTERVAL = Duration.ofSeconds(10);
+    private static final long MAX_BACKOFF_MILLIS = 2000;
+    private static DeviceLeaseRegistry instance;
+
+    private final Path leaseDir;
+    private final String ownerId = String.valueOf(ProcessHandle.current().pid());
+    private final Map<String, String> ownedLeases = new ConcurrentHashMap<>();
+    private final Set<String> parkedLeases = ConcurrentHashMap.newKeySet();
+    private final ReentrantLock registryGuard = new ReentrantLock();
+    private final ReentrantLock waitingLine = new ReentrantLock(true);
+    private final Object leaseReleased = new Object();
+    private long wakeUps;
+    private final ScheduledExecutorService heartbeat;
+
+    /**
+     * This is the constructor for the DeviceLeaseRegistry class.
+     * @param leaseDir This is the directory shared by all JVMs on the host.
+     */
+    public DeviceLeaseRegistry(Path leaseDir) {
+        this.leaseDir = leaseDir;
+        try {
+            Files.createDirectories(leaseDir);
+        } catch (IOException e) {
+            throw new RuntimeException("Cannot create device lease directory : " + leaseDir, e);
+        }
+        heartbeat = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "device-lease-heartbeat");
+            t.setDaemon(true);
+            return t;
+        });
+        heartbeat.scheduleAtFixedRate(this::renewLeases, HEARTBEAT_INTERVAL.toMillis(), HEARTBEAT_INTERVAL.toMillis(), TimeUnit.MILLISECONDS);
+        Runtime.getRuntime().addShutdownHook(new Thread(this::releaseAll, "device-lease-release"));
+    }
+
+    /**
+     * This method is used to get the registry for the configured lease directory.
+     * @return DeviceLeaseRegistry This returns the shared registry instance.
+     */
+    public static synchronized DeviceLeaseRegistry getInstance() {
+        if (instance == null) {
+            String deviceLeaseDir = (System.getProperty("deviceLeaseDir") != null && System.getProperty("deviceLeaseDir").trim().length() > 0) ? System.getProperty("deviceLeaseDir").trim() : ReadProperties.getValue("deviceLeaseDir");
+            if (deviceLeaseDir.isEmpty()) {
+                deviceLeaseDir = System.getProperty("java.io.tmpdir") + File.separator + "appium-device-leases";
+            }
+            instance = new DeviceLeaseRegistry(Paths.get(deviceLeaseDir));
+        }
+        return instance;
+    }
+
+    /**
+     * This method is used to lease one free device, blocking until one of the candidates is free.
+     * Candidates are read again on every attempt, so devices that appear while waiting are picked up.
+     * @param candidates This supplies the udids this thread may use.
+     * @param timeout This is the maximum time to wait.
+     * @return String This returns the leased udid, or null if nothing became free in time.
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public String acquire(Supplier<Collection<String>> candidates, Duration timeout) throws InterruptedException {
+        long deadline = System.currentTimeMillis() + timeout.toMillis();
+        long backoff = 100;
+        if (!waitingLine.tryLock(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+            return null;
+        }
+        try {
+            while (true) {
+                long seenWakeUps;
+                synchronized (leaseReleased) {
+                    seenWakeUps = wakeUps;
+                }
+                for (String udid : candidates.get()) {
+                    if (tryAcquire(udid)) {
+                        return udid;
+                    }
+                }
+                long remaining = deadline - System.currentTimeMillis();
+                if (remaining <= 0) {
+                    return null;
+                }
+                //leases released in this JVM wake us at once, releases from other JVMs are seen on the next poll.
+                synchronized (leaseReleased) {
+                    //a release while the candidates were checked must not be missed.
+                    if (wakeUps == seenWakeUps) {
+                        leaseReleased.wait(Math.min(backoff, remaining));
+                    }
+                }
+                backoff = Math.min(backoff * 2, MAX_BACKOFF_MILLIS);
+            }
+        } finally {
+            waitingLine.unlock();
+        }
+    }
+
+    /**
+     * This method is used to try to lease a specific device without waiting.
+     * @param udid This is the unique device identifier.
+     * @return boolean This returns true if the lease was taken by the current thread.
+     */
+    public boolean tryAcquire(String udid) {
+        Path leaseFile = leaseFile(udid);
+        String owner = ownerId + ":" + Thread.currentThread().getName();
+        if (parkedLeases.remove(udid)) {
+            //still leased by this JVM, only the owning thread changes.
+            ownedLeases.put(udid, owner);
+            withRegistryLock(() -> {
+                writeLease(leaseFile, owner);
+                return null;
+            });
+            LoggerUtilities.info("Parked device lease taken : " + udid + " by " + owner);
+            return true;
+        }
+        String previousLease = withRegistryLock(() -> {
+            String existing = Files.exists(leaseFile) ? Files.readString(leaseFile) : "";
+            if (!existing.isEmpty() && !isStale(existing)) {
+                return null;
+            }
+            writeLease(leaseFile, owner);
+            ownedLeases.put(udid, owner);
+            return existing;
+        });
+        if (previousLease == null) {
+            return false;
+        }
+        if (!previousLease.isEmpty()) {
+            LoggerUtilities.info("Reclaimed stale device lease : " + udid + " (" + previousLease.trim().replace("\n", ", ") + ")");
+        }
+        LoggerUtilities.info("Device lease acquired : " + udid + " by " + owner);
+        return true;
+    }
+
+    /**
+     * This method is used to release a device leased by this JVM and wake up waiting threads.
+     * @param udid This is the unique device identifier.
+     */
+    public void release(String udid) {
+        if (udid == null || ownedLeases.remove(udid) == null) {
+            return;
+        }
+        parkedLeases.remove(udid);
+        withRegistryLock(() -> Files.deleteIfExists(leaseFile(udid)));
+        LoggerUtilities.info("Device lease released : " + udid);
+        wakeUp();
+    }
+
+    /**
+     * This method is used to give a device back to the threads of this JVM only. The lease file and its heartbeat are kept, so other
+     * JVMs keep skipping the device, e.g. while an idle Appium session of {@link company.driver.DriverPool} is open on it.
+     * The next {@link #tryAcquire(String)} of this JVM takes it over, {@link #release(String)} gives it back to every JVM.
+     * @param udid This is the unique device identifier.
+     */
+    public void park(String udid) {
+        if (udid == null || !ownedLeases.containsKey(udid)) {
+            return;
+        }
+        parkedLeases.add(udid);
+        LoggerUtilities.info("Device lease parked : " + udid);
+        wakeUp();
+    }
+
+    /**
+     * This method is used to release every device leased by this JVM.
+     */
+    public void releaseAll() {
+        for (String udid : ownedLeases.keySet()) {
+            release(udid);
+        }
+    }
+
+    /**
+     * This method is used to wake up waiting threads, e.g. when a new device has been registered in {@link DevicePool}.
+     */
+    public void wakeUp() {
+        synchronized (leaseReleased) {
+            wakeUps++;
+            leaseReleased.notifyAll();
+        }
+    }
+
+    private void renewLeases() {
+        for (Map.Entry<String, String> lease : ownedLeases.entrySet()) {
+            withRegistryLock(() -> {
+                if (ownedLeases.containsKey(lease.getKey()))
+                    writeLease(leaseFile(lease.getKey()), lease.getValue());
+                return null;
+            });
+        }
+    }
+
+    private static boolean isStale(String lease) {
+        for (String line : lease.split("\n")) {
+            if (line.startsWith("heartbeat=")) {
+                try {
+                    long heartbeatAt = Long.parseLong(line.substring("heartbeat=".length()).trim());
+                    return System.currentTimeMillis() - heartbeatAt > STALE_AFTER.toMillis();
+                } catch (NumberFormatException e) {
+                    //cut by a JVM that died while writing it, nobody renews such a lease.
+                    return true;
+                }
+            }
+        }
+        return true;
+    }
+
+    private static void writeLease(Path leaseFile, String owner) throws IOException {
+        Files.writeString(leaseFile, "owner=" + owner + "\nheartbeat=" + System.currentTimeMillis() + "\n", StandardCharsets.UTF_8);
+    }
+
+    private Path leaseFile(String udid) {
+        return leaseDir.resolve(udid.replaceAll("[^A-Za-z0-9._-]", "_") + ".lease");
+    }
+
+    private <T> T withRegistryLock(LeaseAction<T> action) {
+        //FileChannel locks are held per JVM, so threads of this JVM queue on the ReentrantLock first.
+        registryGuard.lock();
+        try (FileChannel channel = FileChannel.open(leaseDir.resolve("registry.lock"), StandardOpenOption.CREATE, StandardOpenOption.WRITE)) {
+            FileLock lock = channel.lock();
+            try {
+                return action.run();
+            } finally {
+                lock.release();
+            }
+        } catch (IOException e) {
+            throw new RuntimeException("Device lease registry error : " + e.getMessage(), e);
+        } finally {
+            registryGuard.unlock();
+        }
+    }
+
+    private interface LeaseAction<T> {
+        T run() throws IOException;
+    }
+}
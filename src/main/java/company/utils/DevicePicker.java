@@ -1,16 +1,19 @@
 package company.utils;
-import org.json.JSONArray;
-import org.json.JSONObject;
 import company.base.BasePage;
 
 import java.io.*;
+import java.time.Duration;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * This class is used to manage and interact with emulators.
  */
 public class DevicePicker {
 
+    public static final Duration EMULATOR_BOOT_TIMEOUT = Duration.ofMinutes(5);
+    private static final Map<String, Process> launchedEmulators = new ConcurrentHashMap<>();
+
     /**
      * This method is used to get a list of all emulators.
      * @return List<String> This returns a list of all emulators.
@@ -19,12 +22,11 @@ public class DevicePicker {
     public Map<String, Emulator> getEmulatorsWhichAreON() throws IOException {
         //map deviceName and emulatorName in hashmap.
         Map<String, Emulator> map = new HashMap<>();
-        Process process = Runtime.getRuntime().exec("adb devices");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (line.contains("emulator")) {
-                String udid = line.split("\\s+")[0];
+        //one sessions snapshot for the whole pass.
+        AppiumSessionRegistry.getInstance().refresh();
+        for (Map.Entry<String, String> device : AdbClient.getInstance().devices().entrySet()) {
+            if (device.getKey().contains("emulator") && device.getValue().equals("device")) {
+                String udid = device.getKey();
                 String deviceName = getDeviceName(udid);
                 boolean isDeviceInUseFlag = checkIfDeviceInUse(udid);
                 map.put(deviceName, new Emulator(udid, isDeviceInUseFlag));
@@ -34,9 +36,8 @@ public class DevicePicker {
     }
 
     public static String getDeviceName(String emulatorName) throws IOException {
-        Process process = Runtime.getRuntime().exec("adb -s " + emulatorName + " shell getprop ro.boot.qemu.avd_name");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        return reader.readLine();
+        String avdName = AdbClient.getInstance().shell(emulatorName, "getprop ro.boot.qemu.avd_name").trim();
+        return avdName.isEmpty() ? null : avdName;
     }
 
     /**
@@ -46,24 +47,8 @@ public class DevicePicker {
      * @throws IOException On input error.
      */
     public List<Emulator> getDeviceNotInUse(List<String> devicesAvailable) throws IOException {
-        String appium_host = (System.getProperty("appium_host") != null && System.getProperty("appium_host").trim().length() > 0) ? System.getProperty("appium_host").trim() : (String) ReadProperties.getValue("appium_host");
-        String appium_port = (System.getProperty("appium_port") != null && System.getProperty("appium_port").trim().length() > 0) ? System.getProperty("appium_port").trim() : (String) ReadProperties.getValue("appium_port");
-        String appiumUrl = "http://" + appium_host + ":" + appium_port;
-
-        Process process = Runtime.getRuntime().exec("curl " + appiumUrl + "/sessions");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            LoggerUtilities.info(line);
-            JSONObject jsonObject = new JSONObject(line);
-            JSONArray jsonArray = jsonObject.getJSONArray("value");
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject session = jsonArray.getJSONObject(i);
-                String deviceInUse = (String) session.getJSONObject("capabilities").get("udid");
-                LoggerUtilities.info("Device in use: " + deviceInUse);
-                devicesAvailable.remove(deviceInUse);
-            }
-        }
+        Map<String, String> sessionsByUdid = AppiumSessionRegistry.getInstance().refresh();
+        devicesAvailable.removeIf(device -> sessionsByUdid.containsKey(device.toLowerCase()));
         List<Emulator> listEmulatorsNotInUse = new ArrayList<>();
 
         for (String device : devicesAvailable)
@@ -73,30 +58,17 @@ public class DevicePicker {
         return listEmulatorsNotInUse;
     }
 
-    public boolean checkIfDeviceInUse(String udidTemp) throws IOException {
-        String appium_host = (System.getProperty("appium_host") != null && System.getProperty("appium_host").trim().length() > 0) ? System.getProperty("appium_host").trim() : (String) ReadProperties.getValue("appium_host");
-        String appium_port = (System.getProperty("appium_port") != null && System.getProperty("appium_port").trim().length() > 0) ? System.getProperty("appium_port").trim() : (String) ReadProperties.getValue("appium_port");
-        String appiumUrl = "http://" + appium_host + ":" + appium_port;
-
-        Process process = Runtime.getRuntime().exec("curl " + appiumUrl + "/sessions");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (!line.contains("[]"))
-                LoggerUtilities.info(line);
-            JSONObject jsonObject = new JSONObject(line);
-            JSONArray jsonArray = jsonObject.getJSONArray("value");
-            for (int i = 0; i < jsonArray.length(); i++) {
-                JSONObject session = jsonArray.getJSONObject(i);
-                String deviceInUse = (String) session.getJSONObject("capabilities").get("udid");
-                if (udidTemp.equalsIgnoreCase(deviceInUse))
-                {
-                    LoggerUtilities.info("Device in use: " + deviceInUse);
-                    return true;
-                }
-            }
-        }
-        return false;
+    /**
+     * This method is used to check if a device has a running Appium session.
+     * It reads the shared session snapshot, so checking many devices in one pass costs a single request.
+     * @param udidTemp This is the unique device identifier.
+     * @return boolean This returns true if the device is in use.
+     */
+    public boolean checkIfDeviceInUse(String udidTemp) {
+        boolean inUse = AppiumSessionRegistry.getInstance().isDeviceInUse(udidTemp);
+        if (inUse)
+            LoggerUtilities.info("Device in use: " + udidTemp);
+        return inUse;
     }
 
     /**
@@ -138,64 +110,39 @@ public class DevicePicker {
     }
 
     /**
-     * This method is used to start a specific emulator.
+     * This method is used to launch a specific emulator without waiting for it to boot.
+     * Boot completion is detected by {@link EmulatorBootWatcher}.
      * @param emulatorName This is the name of the emulator to be started.
      * @throws IOException On input error.
      */
-private static String startEmulator(String emulatorName) throws IOException, InterruptedException {
-    String emulatorPath = System.getenv("ANDROID_HOME") + "/emulator/emulator";
-    String[] command = {emulatorPath, "-avd", emulatorName, "-no-snapshot-save", "-no-boot-anim", "-wipe-data"};
-    LoggerUtilities.info("Running emulator command: " + String.join(" ", command));
-    ProcessBuilder pb = new ProcessBuilder(command);
-    pb.redirectErrorStream(true);
-    pb.start();
-
-    // Poll every 5 seconds to check if it appears in 'adb devices'
-    String udid = null;
-    int maxTries = 60; // 5 minutes
-    while (maxTries-- > 0) {
-        Process adbList = Runtime.getRuntime().exec("adb devices");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(adbList.getInputStream()));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (line.startsWith("emulator-")) {
-                String potentialUdid = line.split("\\s+")[0];
-                String avdNameFromUdid = getDeviceName(potentialUdid);
-                if (emulatorName.equalsIgnoreCase(avdNameFromUdid)) {
-                    udid = potentialUdid;
-                    LoggerUtilities.info("Found matching emulator udid: " + udid);
-                    break;
-                }
-            }
-        }
-        if (udid != null) break;
-        BasePage.wait(5);
-    }
-
-    if (udid == null) {
-        LoggerUtilities.error("Failed to detect emulator " + emulatorName + " in adb devices");
-        return null;
+    private static void launchEmulator(String emulatorName) throws IOException {
+        String emulatorPath = System.getenv("ANDROID_HOME") + "/emulator/emulator";
+        String[] command = {emulatorPath, "-avd", emulatorName, "-no-snapshot-save", "-no-boot-anim", "-wipe-data"};
+        LoggerUtilities.info("Running emulator command: " + String.join(" ", command));
+        ProcessBuilder pb = new ProcessBuilder(command);
+        pb.redirectErrorStream(true);
+        //nobody reads the emulator console output, discard it so a full pipe never blocks the emulator.
+        pb.redirectOutput(ProcessBuilder.Redirect.DISCARD);
+        launchedEmulators.put(emulatorName, pb.start());
     }
 
-    // Check boot status
-    int bootTries = 60;
-    while (bootTries-- > 0) {
-        Process bootCheck = Runtime.getRuntime().exec("adb -s " + udid + " shell getprop sys.boot_completed");
-        BufferedReader reader = new BufferedReader(new InputStreamReader(bootCheck.getInputStream()));
-        String bootFlag = reader.readLine();
-        if ("1".equals(bootFlag != null ? bootFlag.trim() : null)) {
-            LoggerUtilities.info("Emulator " + udid + " booted!");
-            return udid;
+    /**
+     * This method is used to stop every emulator process started by {@link #setupAndroidDevices()} that is still running,
+     * including the ones that did not finish booting and so never joined the pool.
+     */
+    public static void shutDownLaunchedEmulators() {
+        for (Map.Entry<String, Process> launched : launchedEmulators.entrySet()) {
+            Process process = launched.getValue();
+            if (process.isAlive()) {
+                //the emulator launcher runs qemu as a child process.
+                process.descendants().forEach(ProcessHandle::destroy);
+                process.destroy();
+                LoggerUtilities.info("Emulator process of " + launched.getKey() + " has been stopped.");
+            }
         }
-        BasePage.wait(15);
+        launchedEmulators.clear();
     }
 
-    LoggerUtilities.error("Emulator " + emulatorName + " failed to boot in time.");
-    return null;
-}
-
-
-
     private static void startSimulator(String simulatorName) throws IOException {
         String command = "xcrun simctl boot " + simulatorName;
         Process process = Runtime.getRuntime().exec(command);
@@ -208,11 +155,14 @@ private static String startEmulator(String emulatorName) throws IOException, Int
      */
     public static void shutDownDevice(String udid) {
         try {
+            if (BasePage.getPlatform().equalsIgnoreCase("android")) {
+                AdbClient.getInstance().emuKill(udid);
+                LoggerUtilities.info("Device " + udid + " has been stopped.");
+                return;
+            }
             String command = "";
             if (BasePage.getPlatform().equalsIgnoreCase("ios"))
                 command = "xcrun simctl shutdown " + udid;
-            else if (BasePage.getPlatform().equalsIgnoreCase("android"))
-                command = "adb -s " + udid + " emu kill";
 
             Process process = Runtime.getRuntime().exec(command);
             InputStream inputStream = process.getInputStream();
@@ -229,85 +179,69 @@ private static String startEmulator(String emulatorName) throws IOException, Int
         }
     }
 
-    /**
-     * This method is used to check if a specific emulator has booted up.
-     * @param newEmulatorId This is the unique identifier of the emulator to be checked.
-     * @return boolean This returns true if the emulator has booted up, false otherwise.
-     * @throws IOException On input error.
-     */
-    private static boolean isEmulatorBooted(String newEmulatorId) throws IOException {
-        String cmdArray = "adb -s " + newEmulatorId + " shell getprop sys.boot_completed";
-        Process process = Runtime.getRuntime().exec(cmdArray);
-
-        BufferedReader reader = new BufferedReader(new InputStreamReader(process.getInputStream()));
-        String line;
-        while ((line = reader.readLine()) != null) {
-            if (line.trim().equals("1")) {
-                return true;
-            }
-        }
-        return false;
-    }
-
     /**
      * This method is used to set up Android devices for testing.
-     * It retrieves a list of available emulators, starts the necessary number of emulators based on the thread count,
-     * and waits for the emulators to boot up before proceeding.
+     * It retrieves a list of available emulators and starts the necessary number of emulators based on the thread count, all at once.
+     * It returns as soon as the first emulator has booted, the remaining ones are added to the returned map
+     * and to {@link DevicePool} as they finish booting.
      * If an emulator is already running, it will not be started again.
-     * @throws IOException On input error.
-     * @throws InterruptedException If the thread sleep is interrupted.
+     * @return Map This returns the live map of started device names and emulators.
      */
-public Map<String, Emulator> setupAndroidDevices() {
-    Map<String, Emulator> finalEmulatorUdidsWhichAreON = new HashMap<>();
-    try {
-        List<String> listOfAndroidDevices = getListOfAllEmulators();
-        Map<String, Emulator> initialEmulatorUdidsWhichAreON = getEmulatorsWhichAreON();
+    public Map<String, Emulator> setupAndroidDevices() {
+        Map<String, Emulator> finalEmulatorUdidsWhichAreON = new ConcurrentHashMap<>();
+        try {
+            List<String> listOfAndroidDevices = getListOfAllEmulators();
+            Map<String, Emulator> initialEmulatorUdidsWhichAreON = getEmulatorsWhichAreON();
 
-        LoggerUtilities.info("Available AVDs: " + listOfAndroidDevices);
-        LoggerUtilities.info("Already running AVDs: " + initialEmulatorUdidsWhichAreON.keySet());
+            LoggerUtilities.info("Available AVDs: " + listOfAndroidDevices);
+            LoggerUtilities.info("Already running AVDs: " + initialEmulatorUdidsWhichAreON.keySet());
 
-        int thread_count = BasePage.getThreadCount();
-        LoggerUtilities.info("Thread count: " + thread_count);
+            int thread_count = BasePage.getThreadCount();
+            LoggerUtilities.info("Thread count: " + thread_count);
 
-        for (String avdName : listOfAndroidDevices) {
-            if (thread_count <= 0) break;
+            List<String> avdsToStart = new ArrayList<>();
+            for (String avdName : listOfAndroidDevices) {
+                if (thread_count <= 0) break;
 
-            if (avdName.toLowerCase().contains("skip")) {
-                LoggerUtilities.info("Skipping device: " + avdName);
-                continue;
-            }
+                if (avdName.toLowerCase().contains("skip")) {
+                    LoggerUtilities.info("Skipping device: " + avdName);
+                    continue;
+                }
 
-            if (initialEmulatorUdidsWhichAreON.containsKey(avdName)) {
-                LoggerUtilities.info("Device already running: " + avdName);
-                continue;
+                if (initialEmulatorUdidsWhichAreON.containsKey(avdName)) {
+                    LoggerUtilities.info("Device already running: " + avdName);
+                    continue;
+                }
+                avdsToStart.add(avdName);
+                thread_count--;
             }
 
-            LoggerUtilities.info("Starting emulator: " + avdName);
-            String startedUdid = startEmulator(avdName);
+            EmulatorBootWatcher bootWatcher = new EmulatorBootWatcher(avdsToStart, (avdName, udid) -> {
+                Emulator emulator = new Emulator(udid, false);
+                finalEmulatorUdidsWhichAreON.put(avdName, emulator);
+                //hand the device to test classes waiting for one right away.
+                DevicePool.register(new AbstractMap.SimpleImmutableEntry<>(avdName, emulator));
+                LoggerUtilities.info("Emulator started: " + udid + " (" + avdName + ")");
+            });
+            for (String avdName : avdsToStart) {
+                LoggerUtilities.info("Starting emulator: " + avdName);
+                launchEmulator(avdName);
+            }
+            bootWatcher.start(EMULATOR_BOOT_TIMEOUT);
+            bootWatcher.awaitFirstBoot();
 
-            if (startedUdid != null) {
-                finalEmulatorUdidsWhichAreON.put(avdName, new Emulator(startedUdid, false));
-                LoggerUtilities.info("Emulator started: " + startedUdid + " (" + avdName + ")");
-                thread_count--;
-            } else {
-                LoggerUtilities.error("Failed to start emulator: " + avdName);
+            if (finalEmulatorUdidsWhichAreON.isEmpty()) {
+                LoggerUtilities.error("No emulators started. Please check AVD configuration or timeout.");
             }
-        }
 
-        if (finalEmulatorUdidsWhichAreON.isEmpty()) {
-            LoggerUtilities.error("No emulators started. Please check AVD configuration or timeout.");
+        } catch (IOException | InterruptedException e) {
+            LoggerUtilities.error("Exception in setupAndroidDevices: " + e.getMessage());
+            e.printStackTrace();
         }
 
-    } catch (IOException | InterruptedException e) {
-        LoggerUtilities.error("Exception in setupAndroidDevices: " + e.getMessage());
-        e.printStackTrace();
+        return finalEmulatorUdidsWhichAreON;
     }
 
-    return finalEmulatorUdidsWhichAreON;
-}
-
-
-
     public Map<String, Emulator> setupIOSDevices() {
         Map<String, Emulator> finalSimulatorUdidsWhichAreON = null;
         try {
@@ -397,6 +331,8 @@ public Map<String, Emulator> setupAndroidDevices() {
         Map<String, Emulator> isDeviceBooted = new HashMap<>();
         Map<String, Emulator> mappingBootedSimulatorsWithUdid = new HashMap<>();
         try {
+            //one sessions snapshot for the whole pass.
+            AppiumSessionRegistry.getInstance().refresh();
             Process process = Runtime.getRuntime().exec("xcrun simctl list devices");
             InputStream inputStream = process.getInputStream();
             BufferedReader reader = new BufferedReader(new InputStreamReader(inputStream));
@@ -0,0 +1,147 @@
+package company.utils;
+
+import company.driver.AppInstaller;
+import company.driver.DriverPool;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * DevicePool class holds the devices of the run. A test class takes a device in @BeforeClass and gives it back in @AfterClass,
+ * so any number of classes can run back to back on a fixed set of devices. Taking a device is a lease in
+ * {@link DeviceLeaseRegistry}: waiting threads are served in arrival order and woken when a device is returned or registered,
+ * and devices in use by another run on the host are skipped. A device returned with a pooled session on it stays leased by this
+ * run, so other runs do not start a session on it. Wait time, utilization and idle time are tracked for the report.
+ */
+public class DevicePool {
+
+    public static final Duration DEVICE_WAIT_TIMEOUT = Duration.ofMinutes(30);
+
+    private static final Map<String, Map.Entry<String, DevicePicker.Emulator>> devicesByUdid = new ConcurrentHashMap<>();
+    private static final Map<String, DeviceUsage> usageByUdid = new ConcurrentHashMap<>();
+    private static final AtomicInteger acquisitions = new AtomicInteger();
+    private static final AtomicLong totalWaitMillis = new AtomicLong();
+    private static final AtomicLong maxWaitMillis = new AtomicLong();
+
+    private DevicePool() {
+    }
+
+    /**
+     * This method is used to add a newly discovered or booted device to the pool.
+     * Registering the same device again has no effect. The app under test starts installing in the background, see {@link AppInstaller}.
+     * @param device This is the device name and emulator.
+     */
+    public static void register(Map.Entry<String, DevicePicker.Emulator> device) {
+        if (usageByUdid.putIfAbsent(device.getValue().udid, new DeviceUsage()) == null) {
+            AppInstaller.preInstall(device.getValue().udid);
+            devicesByUdid.put(device.getValue().udid, device);
+            DeviceLeaseRegistry.getInstance().wakeUp();
+            LoggerUtilities.info("Device added to pool : " + device.getKey() + " (" + device.getValue().udid + ")");
+        }
+    }
+
+    /**
+     * This method is used to take a free device, blocking until one is returned or registered, see {@link DeviceLeaseRegistry#acquire}.
+     * @param timeout This is the maximum time to wait.
+     * @return Map.Entry This returns the device name and emulator, or null if no device became free in time.
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public static Map.Entry<String, DevicePicker.Emulator> acquire(Duration timeout) throws InterruptedException {
+        if (usageByUdid.isEmpty()) {
+            return null;
+        }
+        long start = System.currentTimeMillis();
+        String udid = DeviceLeaseRegistry.getInstance().acquire(DevicePool::getUdids, timeout);
+        if (udid == null) {
+            return null;
+        }
+        Map.Entry<String, DevicePicker.Emulator> device = devicesByUdid.get(udid);
+        long waited = System.currentTimeMillis() - start;
+        acquisitions.incrementAndGet();
+        totalWaitMillis.addAndGet(waited);
+        maxWaitMillis.accumulateAndGet(waited, Math::max);
+        usageByUdid.get(udid).markBusy();
+        device.getValue().deviceUsed = true;
+        TestDurationHistory.restartClockOfCurrentClass();
+        LoggerUtilities.info("Device " + udid + " acquired by " + Thread.currentThread().getName() + " after " + waited + " ms.");
+        return device;
+    }
+
+    /**
+     * This method is used to give a device back to the pool once the test class is done with it.
+     * If {@link DriverPool} keeps an idle session on the device the lease is only parked, see {@link DeviceLeaseRegistry#park(String)}.
+     * @param device This is the device taken with {@link #acquire(Duration)}.
+     */
+    public static void release(Map.Entry<String, DevicePicker.Emulator> device) {
+        if (device == null) {
+            return;
+        }
+        DeviceUsage usage = usageByUdid.get(device.getValue().udid);
+        if (usage != null) {
+            usage.markIdle();
+        }
+        device.getValue().deviceUsed = false;
+        if (DriverPool.hasIdleSession(device.getValue().udid)) {
+            DeviceLeaseRegistry.getInstance().park(device.getValue().udid);
+        } else {
+            DeviceLeaseRegistry.getInstance().release(device.getValue().udid);
+        }
+        LoggerUtilities.info("Device returned to pool : " + device.getValue().udid);
+    }
+
+    /**
+     * This method is used to get the pool metrics for the report.
+     * @return String This returns a one line summary of wait time, utilization and idle time.
+     */
+    public static String getSummary() {
+        long busy = 0;
+        long idle = 0;
+        for (DeviceUsage usage : usageByUdid.values()) {
+            long deviceBusy = usage.getBusyMillis();
+            busy += deviceBusy;
+            idle += usage.getRegisteredMillis() - deviceBusy;
+        }
+        int count = acquisitions.get();
+        long averageWait = count == 0 ? 0 : totalWaitMillis.get() / count;
+        long utilization = busy + idle == 0 ? 0 : (busy * 100) / (busy + idle);
+        return "devices=" + usageByUdid.size() + ", acquisitions=" + count + ", avg wait=" + averageWait + " ms, max wait=" + maxWaitMillis.get()
+                + " ms, utilization=" + utilization + "%, idle=" + (idle / 1000) + " s";
+    }
+
+    private static Collection<String> getUdids() {
+        return new ArrayList<>(devicesByUdid.keySet());
+    }
+
+    /**
+     * DeviceUsage class tracks how long one device has been busy since it joined the pool.
+     */
+    private static class DeviceUsage {
+        private final long registeredAt = System.currentTimeMillis();
+        private long busyMillis;
+        private long busySince;
+
+        synchronized void markBusy() {
+            busySince = System.currentTimeMillis();
+        }
+
+        synchronized void markIdle() {
+            if (busySince > 0) {
+                busyMillis += System.currentTimeMillis() - busySince;
+                busySince = 0;
+            }
+        }
+
+        synchronized long getBusyMillis() {
+            return busyMillis + (busySince > 0 ? System.currentTimeMillis() - busySince : 0);
+        }
+
+        long getRegisteredMillis() {
+            return System.currentTimeMillis() - registeredAt;
+        }
+    }
+}
@@ -0,0 +1,166 @@
+package company.utils;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.BiConsumer;
+
+/**
+ * EmulatorBootWatcher class detects boot completion of a set of AVDs that are starting in parallel.
+ * It follows a single track-devices stream of {@link AdbClient} and, for every emulator that comes online,
+ * waits on the device itself for 'sys.boot_completed' instead of polling from the host.
+ * Each AVD is reported to the callback as soon as it has booted. A check that fails on an adb error is tried again after {@link #BOOT_CHECK_RETRY}.
+ */
+public class EmulatorBootWatcher {
+
+    public static final Duration BOOT_CHECK_RETRY = Duration.ofSeconds(2);
+    private static final String BOOT_WAIT_SCRIPT = "while [ \"$(getprop sys.boot_completed)\" != \"1\" ]; do sleep 1; done; getprop ro.boot.qemu.avd_name";
+
+    private final Set<String> pendingAvds = ConcurrentHashMap.newKeySet();
+    private final Set<String> seenSerials = ConcurrentHashMap.newKeySet();
+    private final Set<Closeable> openConnections = ConcurrentHashMap.newKeySet();
+    private final BiConsumer<String, String> onBooted;
+    private final CountDownLatch allBooted;
+    private final CountDownLatch firstBootOrFinish = new CountDownLatch(1);
+    private final ExecutorService bootCheckers;
+    private final ScheduledExecutorService retries;
+    private volatile Map<String, String> lastDevices = Map.of();
+    private volatile boolean finished;
+
+    /**
+     * This is the constructor for the EmulatorBootWatcher class.
+     * @param avdNames This is the list of AVD names being started.
+     * @param onBooted This is called with (avdName, udid) for every AVD that completed boot.
+     */
+    public EmulatorBootWatcher(Collection<String> avdNames, BiConsumer<String, String> onBooted) {
+        this.pendingAvds.addAll(avdNames);
+        this.onBooted = onBooted;
+        this.allBooted = new CountDownLatch(pendingAvds.size());
+        this.bootCheckers = Executors.newCachedThreadPool(r -> {
+            Thread t = new Thread(r, "emulator-boot-check");
+            t.setDaemon(true);
+            return t;
+        });
+        this.retries = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "emulator-boot-retry");
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
+    /**
+     * This method is used to start watching. It returns immediately.
+     * Watching stops when every AVD has booted or the timeout expires.
+     * @param timeout This is the maximum time to wait for all AVDs to boot.
+     */
+    public void start(Duration timeout) {
+        if (pendingAvds.isEmpty()) {
+            stop();
+            return;
+        }
+        try {
+            openConnections.add(AdbClient.getInstance().trackDevices(this::onDeviceListChanged));
+        } catch (IOException e) {
+            LoggerUtilities.error("Error in opening adb track-devices stream : " + e.getMessage());
+            stop();
+            return;
+        }
+
+        Thread coordinator = new Thread(() -> {
+            try {
+                if (!allBooted.await(timeout.toMillis(), TimeUnit.MILLISECONDS)) {
+                    LoggerUtilities.error("Emulator(s) failed to boot in time : " + pendingAvds);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                stop();
+            }
+        }, "emulator-boot-coordinator");
+        coordinator.setDaemon(true);
+        coordinator.start();
+    }
+
+    /**
+     * This method is used to block until the first AVD has booted, or until watching has finished without any boot.
+     * @throws InterruptedException If the waiting thread is interrupted.
+     */
+    public void awaitFirstBoot() throws InterruptedException {
+        firstBootOrFinish.await();
+    }
+
+    /**
+     * This method is used to stop watching and close the adb connections.
+     */
+    public void stop() {
+        finished = true;
+        for (Closeable connection : openConnections) {
+            try {
+                connection.close();
+            } catch (IOException ignored) {
+            }
+        }
+        bootCheckers.shutdownNow();
+        retries.shutdownNow();
+        firstBootOrFinish.countDown();
+    }
+
+    private void onDeviceListChanged(Map<String, String> devices) {
+        lastDevices = devices;
+        for (Map.Entry<String, String> device : devices.entrySet()) {
+            String serial = device.getKey();
+            if (!serial.startsWith("emulator-") || !device.getValue().equals("device")) {
+                continue;
+            }
+            if (seenSerials.add(serial)) {
+                bootCheckers.submit(() -> awaitBootCompleted(serial));
+            }
+        }
+    }
+
+    private void awaitBootCompleted(String serial) {
+        try (InputStream in = AdbClient.getInstance().execOut(serial, "sh -c '" + BOOT_WAIT_SCRIPT + "'")) {
+            openConnections.add(in);
+            String avdName = null;
+            for (String line : new String(in.readAllBytes(), StandardCharsets.UTF_8).split("\n")) {
+                if (!line.trim().isEmpty())
+                    avdName = line.trim();
+            }
+            openConnections.remove(in);
+            if (avdName != null && pendingAvds.remove(avdName)) {
+                LoggerUtilities.info("Emulator " + serial + " (" + avdName + ") booted!");
+                onBooted.accept(avdName, serial);
+                firstBootOrFinish.countDown();
+                allBooted.countDown();
+            }
+        } catch (IOException e) {
+            if (!finished) {
+                LoggerUtilities.error("Error in waiting for boot of " + serial + " : " + e.getMessage());
+                retries.schedule(() -> retryBootCheck(serial), BOOT_CHECK_RETRY.toMillis(), TimeUnit.MILLISECONDS);
+            }
+        }
+    }
+
+    private void retryBootCheck(String serial) {
+        if (finished) {
+            return;
+        }
+        if ("device".equals(lastDevices.get(serial))) {
+            bootCheckers.submit(() -> awaitBootCompleted(serial));
+        } else {
+            //the emulator went offline, it is checked again when it comes back in the device list.
+            seenSerials.remove(serial);
+        }
+    }
+}
@@ -8,8 +8,7 @@ import com.aventstack.extentreports.markuputils.ExtentColor;
 import com.aventstack.extentreports.markuputils.Markup;
 import com.aventstack.extentreports.markuputils.MarkupHelper;
 import company.base.BasePage;
-import org.openqa.selenium.OutputType;
-import org.openqa.selenium.TakesScreenshot;
+import company.driver.DriverPool;
 import org.testng.*;
 import org.testng.annotations.ITestAnnotation;
 
@@ -78,11 +77,20 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 
 	public static void createTestPreReq(String className, String methodName){
 		String errMsg = "ExtentReport setter handle is null. Exiting.";
-		test = extent.createTest(className + " @Test Case : " + methodName);
-		test.assignCategory(BasePage.getPlatform() + "-" + BasePage.getDeviceName());
+		ExtentTest created;
+		//the test list of the report is not thread safe, tests are also removed from it by ReportJournal.
+		synchronized (extent) {
+			created = extent.createTest(className + " @Test Case : " + methodName);
+		}
+		//the static field is shared by all threads, this thread keeps working with its own test.
+		test = created;
+		created.assignCategory(BasePage.getPlatform() + "-" + BasePage.getDeviceName());
 		try{
-			if (test != null)
-				testReport.set(test);
+			if (created != null) {
+				testReport.set(created);
+				//the previous test of this thread is complete now and goes to the report journal.
+				ReportJournal.started(created);
+			}
 			else
 			{
 				throw new RuntimeException(errMsg);
@@ -92,8 +100,10 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 		}
 	}
 	public void onTestStart(ITestResult result) {
+		TestLogContext.begin(result);
 		String testname = result.getMethod().getMethodName();
 		LoggerUtilities.infoLoggerInFileAndReport("*** Test Case Started : " + testname);
+		StepBuffer.start(testname);
 		//set these flags to false to enable Extent report in @Test and later annotations.
 		setBeforeSuiteflag(false);
 		setBeforeClassflag(false);
@@ -101,6 +111,7 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 	}
 
 	public void onTestSuccess(ITestResult result) {
+		StepBuffer.finish(true);
 		String testname = result.getMethod().getMethodName();
 		LoggerUtilities.info("*** Test Case PASSED : " + testname);
 		String methodName = result.getMethod().getMethodName();
@@ -108,21 +119,11 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 		Markup m = MarkupHelper.createLabel(logText, ExtentColor.GREEN);
 		if (getExtent() != null)
 			getExtent().pass(m);
-	}
-
-	private String getBase64Image(){
-		String str = null;
-		try{
-			str = ((TakesScreenshot) BasePage.getDriver()).getScreenshotAs(OutputType.BASE64);
-			if (str == null)
-				throw new RuntimeException("Error in screenshot.");
-		}catch (Exception e){
-			LoggerUtilities.error("Error in screenshot : " + Arrays.toString(e.getStackTrace()));
-		}
-		return str;
+		TestLogContext.end();
 	}
 
 	public void onTestFailure(ITestResult result) {
+		StepBuffer.finish(false);
 		if(result.getThrowable() != null) {
 			StringWriter sw = new StringWriter();
 			PrintWriter pw = new PrintWriter(sw);
@@ -135,17 +136,20 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 			String methodName = result.getMethod().getMethodName();
 			String logText = "<b>" + "Test Case : " + methodName + " FAILED" + "</b>";
 			getExtent().fail(result.getThrowable().getMessage());
-			if (getBase64Image() != null)
+			String screenshot = ScreenshotService.capture(methodName);
+			if (screenshot != null)
 				getExtent().fail("<b><font color=red>" + "Screenshot of failure" + "</font></b><br>",
-					MediaEntityBuilder.createScreenCaptureFromBase64String(getBase64Image()).build());
+					MediaEntityBuilder.createScreenCaptureFromPath(screenshot).build());
 
 			getExtent().fail(result.getThrowable());
 			Markup m = MarkupHelper.createLabel(logText, ExtentColor.RED);
 			getExtent().log(Status.FAIL, m);
 		}
+		TestLogContext.end();
 	}
 
 	public void onTestSkipped(ITestResult result) {
+		StepBuffer.finish(false);
 		if (result.getThrowable() != null) {
 			StringWriter sw = new StringWriter();
 			PrintWriter pw = new PrintWriter(sw);
@@ -156,9 +160,10 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 			if (getExtent() != null)
 			{
 				getExtent().fail(result.getThrowable().getMessage());
-				if(getBase64Image() != null)
+				String screenshot = ScreenshotService.capture(methodName);
+				if(screenshot != null)
 					getExtent().fail("<b><font color=orange>" + "Screenshot of failure" + "</font></b><br>",
-						MediaEntityBuilder.createScreenCaptureFromBase64String(getBase64Image()).build());
+						MediaEntityBuilder.createScreenCaptureFromPath(screenshot).build());
 
 				getExtent().skip(result.getThrowable());
 				Markup m = MarkupHelper.createLabel(logText, ExtentColor.ORANGE);
@@ -175,6 +180,7 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 				getExtent().skip(m);
 			}
 		}
+		TestLogContext.end();
 	}
 
 	public void onTestFailedButWithinSuccessPercentage(ITestResult result) {
@@ -191,8 +197,26 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 	}
 
 	public void onFinish(ITestContext context) {
+		TestDurationHistory.save();
+		String schedule = "predicted=" + LongestFirstScheduler.getPredictedMillis() / 1000 + " s, actual=" + (System.currentTimeMillis() - d.getTime()) / 1000 + " s";
+		LoggerUtilities.info("Session pool : " + DriverPool.getSummary());
+		LoggerUtilities.info("Device pool : " + DevicePool.getSummary());
+		LoggerUtilities.info("Suite duration : " + schedule);
+		LoggerUtilities.info("Waits : " + WaitEngine.getInstance().getSummary());
+		LoggerUtilities.info("Fast-fail probes saved : " + BasePage.getTotalProbeSavedSeconds() + " s");
+		LoggerUtilities.info("Element cache : " + CachingFieldDecorator.getSummary());
 		if (extent != null) {
-			extent.flush();
+			extent.setSystemInfo("Session pool", DriverPool.getSummary());
+			extent.setSystemInfo("Device pool", DevicePool.getSummary());
+			extent.setSystemInfo("Suite duration", schedule);
+			extent.setSystemInfo("Waits", WaitEngine.getInstance().getSummary());
+			extent.setSystemInfo("Fast-fail probes saved", BasePage.getTotalProbeSavedSeconds() + " s");
+			extent.setSystemInfo("Element cache", CachingFieldDecorator.getSummary());
+			ScreenshotService.awaitPending(30);
+			if (ReportJournal.isEnabled())
+				ReportJournal.finishAll();
+			else
+				extent.flush();
 		}
 		LoggerUtilities.info("Total Passed Tests: " + context.getPassedTests().size());
 		LoggerUtilities.info("Total Failed Tests: " + context.getFailedTests().size());
@@ -202,6 +226,7 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 
 	public void onStart(ISuite suite) {
 		ReadProperties.readConfigFile();
+		TestLogContext.configure();
 		setBeforeSuiteflag(true);
 		if (getBeforeClassflag() == null)
 			setBeforeClassflag(false);
@@ -209,7 +234,8 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 			setBeforeTestflag(false);
 		String groups = (System.getProperty("groups") != null && System.getProperty("groups").trim().length() > 0) ? System.getProperty("groups").trim() : "";
 		groups = groups.substring(13);
-		fileName = "AppiumReport_"  + groups + "_" + d.getTime() + ".html";
+		String shardLabel = TestShard.getShardLabel();
+		fileName = "AppiumReport_"  + groups + "_" + d.getTime() + (shardLabel.isEmpty() ? "" : "_" + shardLabel) + ".html";
         extent = ExtentManager.createInstance("./reports/" + fileName);
 	}
 
@@ -219,6 +245,7 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 
 	@Override
 	public void onBeforeClass(ITestClass testClass) {
+		TestDurationHistory.classStarted(testClass.getRealClass().getName());
 		setBeforeClassflag(true);
 		if (getBeforeSuiteflag() == null)
 			setBeforeSuiteflag(false);
@@ -228,6 +255,8 @@ public class ExtentListeners implements ITestListener, ISuiteListener, IClassLis
 
 	@Override
 	public void onAfterClass(ITestClass testClass) {
+		TestDurationHistory.classFinished(testClass.getRealClass().getName());
+		ReportJournal.finishCurrentThread();
 	}
 
 	@Override
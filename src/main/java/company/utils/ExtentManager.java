@@ -2,6 +2,7 @@ package company.utils;
 
 import com.aventstack.extentreports.ExtentReports;
 import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import com.aventstack.extentreports.reporter.JsonFormatter;
 import com.aventstack.extentreports.reporter.configuration.Theme;
 
 import java.util.Objects;
@@ -20,21 +21,21 @@ public class ExtentManager {
 	 * If an instance already exists, it returns the existing instance.
 	 * Otherwise, it creates a new instance, configures the reporter, and attaches the reporter to the instance.
 	 * It also sets system information for the report.
+	 * In shard mode a JSON archive is written next to the HTML report so the shards can be merged afterwards.
+	 * With incrementalReport the reporters are attached by {@link ReportJournal} as it writes the report pages from its journal.
 	 * @param fileName This is the name of the file where the report will be saved.
 	 * @return ExtentReports This returns the created or existing instance of ExtentReports.
 	 */
 	public static ExtentReports createInstance(String fileName) {
 		if (Objects.isNull(extent))
 		{
-			ExtentSparkReporter htmlReporter = new ExtentSparkReporter(fileName);
-
-			htmlReporter.config().setTheme(Theme.STANDARD);
-			htmlReporter.config().setDocumentTitle(fileName);
-			htmlReporter.config().setEncoding("utf-8");
-			htmlReporter.config().setReportName(fileName);
-
 			extent = new ExtentReports();
-			extent.attachReporter(htmlReporter);
+			if (ReportJournal.isEnabled()) {
+				//tests go to the journal as they finish, the HTML report pages are written from it.
+				ReportJournal.open(extent, fileName);
+			} else {
+				attachReporters(extent, fileName);
+			}
 			extent.setSystemInfo("Automation Tester", "QA");
 			String organisation = (System.getProperty("organisation") != null && System.getProperty("organisation").trim().length() > 0) ? System.getProperty("organisation").trim() : ReadProperties.getValue("organisation");
 			extent.setSystemInfo("Organization", organisation);
@@ -45,4 +46,33 @@ public class ExtentManager {
 		}
 		return extent;
 	}
+
+	/**
+	 * This method is used to attach the HTML reporter, and in shard mode the JSON archive reporter, to an instance of ExtentReports.
+	 * @param extent This is the instance of ExtentReports.
+	 * @param fileName This is the name of the file where the report will be saved.
+	 */
+	static void attachReporters(ExtentReports extent, String fileName) {
+		attachHtmlReporter(extent, fileName);
+		if (!TestShard.getShardLabel().isEmpty()) {
+			//partial report of a shard, merged with the other shards by ReportMerger.
+			extent.attachReporter(new JsonFormatter(fileName.replaceAll("\\.html$", ".json")));
+		}
+	}
+
+	/**
+	 * This method is used to attach the HTML reporter only, e.g. to a page of the report written by {@link ReportJournal}.
+	 * @param extent This is the instance of ExtentReports.
+	 * @param fileName This is the name of the file where the report will be saved.
+	 */
+	static void attachHtmlReporter(ExtentReports extent, String fileName) {
+		ExtentSparkReporter htmlReporter = new ExtentSparkReporter(fileName);
+
+		htmlReporter.config().setTheme(Theme.STANDARD);
+		htmlReporter.config().setDocumentTitle(fileName);
+		htmlReporter.config().setEncoding("utf-8");
+		htmlReporter.config().setReportName(fileName);
+
+		extent.attachReporter(htmlReporter);
+	}
 }
@@ -0,0 +1,223 @@
+package company.utils;
+
+import company.base.BasePage;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.interactions.Interaction;
+import org.openqa.selenium.interactions.Pause;
+import org.openqa.selenium.interactions.PointerInput;
+import org.openqa.selenium.interactions.Sequence;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.openqa.selenium.interactions.PointerInput.MouseButton.LEFT;
+import static org.openqa.selenium.interactions.PointerInput.Origin.viewport;
+
+/**
+ * Gesture class builds touch gestures step by step and sends all of them to the device in a single W3C actions call.
+ * Steps run one after the other: swipes, taps, long presses, pauses and two finger pinches can be mixed freely,
+ * e.g. Gesture.create().swipe(a, b, d).pause(p).swipe(a, b, d).perform() scrolls twice with one round-trip.
+ * Every finger gets one action per tick (padded with zero pauses), so the steps of different fingers stay in order.
+ */
+public class Gesture {
+
+    /**
+     * Velocity enum is the speed profile of a finger move.
+     * LINEAR moves at constant speed, EASE_OUT starts fast and slows down (fling and settle), EASE_IN_OUT speeds up and slows down.
+     */
+    public enum Velocity {
+        LINEAR, EASE_OUT, EASE_IN_OUT
+    }
+
+    private static final Duration TAP_HOLD = Duration.ofMillis(200);
+    private static final int PROFILE_SEGMENTS = 8;
+
+    private final List<PointerInput> fingers = new ArrayList<>();
+    private final List<Sequence> sequences = new ArrayList<>();
+    private int ticks;
+    private int steps;
+    private Duration duration = Duration.ZERO;
+
+    private Gesture() {
+    }
+
+    /**
+     * This method is used to start a new gesture.
+     * @return Gesture This returns an empty gesture.
+     */
+    public static Gesture create() {
+        return new Gesture();
+    }
+
+    /**
+     * This method is used to add a one finger swipe at constant speed.
+     * @param from This is the start point.
+     * @param to This is the end point.
+     * @param duration This is the duration of the move.
+     * @return Gesture This returns the gesture for chaining.
+     */
+    public Gesture swipe(Point from, Point to, Duration duration) {
+        return swipe(from, to, duration, Velocity.LINEAR);
+    }
+
+    /**
+     * This method is used to add a one finger swipe with a speed profile.
+     * @param from This is the start point.
+     * @param to This is the end point.
+     * @param duration This is the duration of the move.
+     * @param velocity This is the speed profile of the move.
+     * @return Gesture This returns the gesture for chaining.
+     */
+    public Gesture swipe(Point from, Point to, Duration duration, Velocity velocity) {
+        PointerInput finger = finger(0);
+        List<Interaction> actions = new ArrayList<>();
+        actions.add(finger.createPointerMove(Duration.ZERO, viewport(), from.x, from.y));
+        actions.add(finger.createPointerDown(LEFT.asArg()));
+        actions.addAll(moves(finger, from, to, duration, velocity));
+        actions.add(finger.createPointerUp(LEFT.asArg()));
+        return step(duration, actions);
+    }
+
+    /**
+     * This method is used to add a tap.
+     * @param point This is the point to tap on.
+     * @return Gesture This returns the gesture for chaining.
+     */
+    public Gesture tap(Point point) {
+        return longPress(point, TAP_HOLD);
+    }
+
+    /**
+     * This method is used to add a press that is held for the given time.
+     * @param point This is the point to press on.
+     * @param hold This is how long the finger stays down.
+     * @return Gesture This returns the gesture for chaining.
+     */
+    public Gesture longPress(Point point, Duration hold) {
+        PointerInput finger = finger(0);
+        return step(hold, Arrays.asList(finger.createPointerMove(Duration.ZERO, viewport(), point.x, point.y),
+                finger.createPointerDown(LEFT.asArg()),
+                new Pause(finger, hold),
+                finger.createPointerUp(LEFT.asArg())));
+    }
+
+    /**
+     * This method is used to add a pause between two steps, e.g. to let a list settle.
+     * @param pause This is the pause.
+     * @return Gesture This returns the gesture for chaining.
+     */
+    public Gesture pause(Duration pause) {
+        return step(pause, List.of(new Pause(finger(0), pause)));
+    }
+
+    /**
+     * This method is used to add a horizontal two finger pinch. A larger end distance zooms in, a smaller one zooms out.
+     * @param center This is the point between the two fingers.
+     * @param fromDistance This is the distance between the fingers at the start.
+     * @param toDistance This is the distance between the fingers at the end.
+     * @param duration This is the duration of the move.
+     * @return Gesture This returns the gesture for chaining.
+     */
+    public Gesture pinch(Point center, int fromDistance, int toDistance, Duration duration) {
+        List<List<Interaction>> actions = new ArrayList<>();
+        for (int side = -1; side <= 1; side += 2) {
+            PointerInput finger = finger(side < 0 ? 0 : 1);
+            Point from = new Point(center.x + side * fromDistance / 2, center.y);
+            Point to = new Point(center.x + side * toDistance / 2, center.y);
+            List<Interaction> fingerActions = new ArrayList<>();
+            fingerActions.add(finger.createPointerMove(Duration.ZERO, viewport(), from.x, from.y));
+            fingerActions.add(finger.createPointerDown(LEFT.asArg()));
+            fingerActions.addAll(moves(finger, from, to, duration, Velocity.LINEAR));
+            fingerActions.add(finger.createPointerUp(LEFT.asArg()));
+            actions.add(fingerActions);
+        }
+        return stepOfFingers(duration, actions);
+    }
+
+    /**
+     * This method is used to send the gesture to the device with one actions call.
+     */
+    public void perform() {
+        if (steps == 0) {
+            return;
+        }
+        BasePage.getDriver().perform(sequences);
+    }
+
+    /**
+     * This method is used to get the number of steps added so far.
+     * @return int This returns the number of swipes, taps, pauses and pinches.
+     */
+    public int getSteps() {
+        return steps;
+    }
+
+    /**
+     * This method is used to get how long the gesture takes on the device, without the round-trip.
+     * @return Duration This returns the sum of the step durations.
+     */
+    public Duration getDuration() {
+        return duration;
+    }
+
+    private Gesture step(Duration stepDuration, List<Interaction> actions) {
+        List<List<Interaction>> perFinger = new ArrayList<>();
+        perFinger.add(actions);
+        return stepOfFingers(stepDuration, perFinger);
+    }
+
+    //every finger gets the same number of ticks for the step, fingers without an action wait with zero pauses.
+    private Gesture stepOfFingers(Duration stepDuration, List<List<Interaction>> perFinger) {
+        int stepTicks = 0;
+        for (List<Interaction> actions : perFinger) {
+            stepTicks = Math.max(stepTicks, actions.size());
+        }
+        for (int i = 0; i < fingers.size(); i++) {
+            List<Interaction> actions = i < perFinger.size() ? perFinger.get(i) : List.of();
+            for (Interaction action : actions) {
+                sequences.get(i).addAction(action);
+            }
+            for (int pad = actions.size(); pad < stepTicks; pad++) {
+                sequences.get(i).addAction(new Pause(fingers.get(i), Duration.ZERO));
+            }
+        }
+        ticks += stepTicks;
+        steps++;
+        duration = duration.plus(stepDuration);
+        return this;
+    }
+
+    private PointerInput finger(int index) {
+        while (fingers.size() <= index) {
+            PointerInput finger = new PointerInput(PointerInput.Kind.TOUCH, "finger" + (fingers.size() + 1));
+            fingers.add(finger);
+            //a finger joining later waits through the ticks that already exist.
+            sequences.add(new Sequence(finger, ticks));
+        }
+        return fingers.get(index);
+    }
+
+    private static List<Interaction> moves(PointerInput finger, Point from, Point to, Duration duration, Velocity velocity) {
+        if (velocity == Velocity.LINEAR) {
+            return List.of(finger.createPointerMove(duration, viewport(), to.x, to.y));
+        }
+        List<Interaction> moves = new ArrayList<>(PROFILE_SEGMENTS);
+        Duration segment = duration.dividedBy(PROFILE_SEGMENTS);
+        for (int i = 1; i <= PROFILE_SEGMENTS; i++) {
+            double progress = ease(velocity, (double) i / PROFILE_SEGMENTS);
+            int x = from.x + (int) Math.round((to.x - from.x) * progress);
+            int y = from.y + (int) Math.round((to.y - from.y) * progress);
+            moves.add(finger.createPointerMove(segment, viewport(), x, y));
+        }
+        return moves;
+    }
+
+    private static double ease(Velocity velocity, double t) {
+        if (velocity == Velocity.EASE_OUT) {
+            return 1 - (1 - t) * (1 - t);
+        }
+        return t < 0.5 ? 2 * t * t : 1 - Math.pow(-2 * t + 2, 2) / 2;
+    }
+}
@@ -0,0 +1,145 @@
+package company.utils;
+
+import company.base.BasePage;
+import io.appium.java_client.android.AndroidDriver;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.ImmutableCapabilities;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.interactions.Sequence;
+import org.openqa.selenium.remote.Command;
+import org.openqa.selenium.remote.DriverCommand;
+import org.openqa.selenium.remote.HttpCommandExecutor;
+import org.openqa.selenium.remote.Response;
+import org.openqa.selenium.remote.SessionId;
+import org.openqa.selenium.remote.http.ClientConfig;
+import org.openqa.selenium.remote.http.HttpClient;
+
+import java.net.MalformedURLException;
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * GestureBenchmark class compares sending every swipe on its own (size lookup plus one actions call per swipe, as
+ * scrollWithCount did before) with sending all swipes as one {@link Gesture}.
+ * It runs against a simulated Appium session that charges a fixed round-trip per command and the gesture time per actions call,
+ * so it needs no device:
+ * mvn compile exec:java -Dexec.mainClass=company.utils.GestureBenchmark -Dexec.args="150 5 10"
+ * (round-trip in ms, swipes per scroll, repetitions).
+ */
+public class GestureBenchmark {
+
+    private static final Duration SWIPE = Duration.ofMillis(700);
+    private static final Duration GAP = Duration.ofMillis(100);
+
+    public static void main(String[] args) throws Exception {
+        long roundTripMillis = args.length > 0 ? Long.parseLong(args[0]) : 150;
+        int swipes = args.length > 1 ? Integer.parseInt(args[1]) : 5;
+        int repetitions = args.length > 2 ? Integer.parseInt(args[2]) : 10;
+
+        SimulatedExecutor executor = new SimulatedExecutor(roundTripMillis);
+        AndroidDriver driver = new AndroidDriver(executor, new ImmutableCapabilities("platformName", "Android"));
+        BasePage.setDriver(driver);
+        BasePage.setPlatform("android");
+        Point from = new Point(432, 1440);
+        Point to = new Point(432, 576);
+
+        executor.reset();
+        long start = System.nanoTime();
+        for (int r = 0; r < repetitions; r++) {
+            for (int i = 0; i < swipes; i++) {
+                driver.manage().window().getSize();
+                Gesture.create().swipe(from, to, SWIPE).perform();
+            }
+        }
+        report("per swipe", executor.calls.get(), System.nanoTime() - start, repetitions);
+
+        executor.reset();
+        start = System.nanoTime();
+        for (int r = 0; r < repetitions; r++) {
+            Gesture gesture = Gesture.create();
+            for (int i = 0; i < swipes; i++) {
+                if (i > 0) {
+                    gesture.pause(GAP);
+                }
+                gesture.swipe(from, to, SWIPE);
+            }
+            gesture.perform();
+        }
+        report("one gesture", executor.calls.get(), System.nanoTime() - start, repetitions);
+    }
+
+    private static void report(String name, int calls, long elapsedNanos, int repetitions) {
+        LoggerUtilities.info(String.format("%-12s : %5.1f round-trips, %6d ms per scroll", name, (double) calls / repetitions, elapsedNanos / 1_000_000 / repetitions));
+    }
+
+    /**
+     * SimulatedExecutor class answers driver commands locally, sleeping the round-trip plus the time the device spends on actions.
+     */
+    private static class SimulatedExecutor extends HttpCommandExecutor {
+        private static final URI SIMULATED_SERVER = URI.create("http://127.0.0.1:4723");
+        private final long roundTripMillis;
+        private final AtomicInteger calls = new AtomicInteger();
+        private final SessionId sessionId = new SessionId(UUID.randomUUID());
+
+        SimulatedExecutor(long roundTripMillis) throws MalformedURLException {
+            //the client is never called, execute answers every command locally.
+            super(HttpClient.Factory.createDefault().createClient(ClientConfig.defaultConfig().baseUri(SIMULATED_SERVER)), SIMULATED_SERVER.toURL());
+            this.roundTripMillis = roundTripMillis;
+        }
+
+        void reset() {
+            calls.set(0);
+        }
+
+        @Override
+        public Response execute(Command command) {
+            Response response = new Response(sessionId);
+            response.setState("success");
+            if (DriverCommand.NEW_SESSION.equals(command.getName())) {
+                response.setValue(Map.of("platformName", "Android"));
+                return response;
+            }
+            calls.incrementAndGet();
+            long busyMillis = roundTripMillis;
+            if (DriverCommand.ACTIONS.equals(command.getName())) {
+                busyMillis += actionMillis((Collection<?>) command.getParameters().get("actions"));
+            } else if (DriverCommand.GET_CURRENT_WINDOW_SIZE.equals(command.getName())) {
+                Dimension size = new Dimension(1080, 2400);
+                response.setValue(Map.of("width", size.width, "height", size.height));
+            }
+            try {
+                Thread.sleep(busyMillis);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return response;
+        }
+
+        //the device runs the ticks one after the other, a tick lasts as long as its longest action.
+        @SuppressWarnings("unchecked")
+        private static long actionMillis(Collection<?> sequences) {
+            long total = 0;
+            for (int tick = 0; ; tick++) {
+                boolean any = false;
+                long longest = 0;
+                for (Object sequence : sequences) {
+                    List<Map<String, Object>> actions = (List<Map<String, Object>>) ((Sequence) sequence).encode().get("actions");
+                    if (tick < actions.size()) {
+                        any = true;
+                        Object duration = actions.get(tick).get("duration");
+                        longest = Math.max(longest, duration instanceof Number ? ((Number) duration).longValue() : 0);
+                    }
+                }
+                if (!any) {
+                    return total;
+                }
+                total += longest;
+            }
+        }
+    }
+}
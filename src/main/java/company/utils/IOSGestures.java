@@ -1,6 +1,5 @@
 package company.utils;
 
-import org.openqa.selenium.NoSuchElementException;
 import org.openqa.selenium.WebElement;
 import company.base.BasePage;
 
@@ -14,24 +13,25 @@ import java.util.Map;
 public class IOSGestures {
     /**
      * This method is used to scroll and click on a given element.
-     * If the element is not found, it will scroll down and retry up to 10 times.
+     * If the element is not found, it will scroll down and retry up to 10 times. Lookups do not wait, a miss scrolls at once.
      * @param element This is the element to scroll to and click on.
      */
     public static void scrollAndClick(WebElement element) {
-        int retryCount = 0;
-        while (retryCount < 10) {  // Limit retries to avoid infinite loop
-            try {
-                element.click();
-                System.out.println("Clicked on the element: " + element);
-                LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success : " + element);
-                break;
-            } catch (NoSuchElementException e) {
+        BasePage.probe(() -> {
+            int retryCount = 0;
+            while (retryCount < 10) {  // Limit retries to avoid infinite loop
+                if (BasePage.isPresent(element)) {
+                    element.click();
+                    System.out.println("Clicked on the element: " + element);
+                    LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success : " + element);
+                    break;
+                }
                 // Scroll down
                 System.out.println("Scrolling down...");
                 scrollDown();
                 retryCount++;
             }
-        }
+        });
     }
 
     /**
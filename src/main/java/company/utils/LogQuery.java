@@ -0,0 +1,132 @@
+package company.utils;
+
+import org.json.JSONException;
+import org.json.JSONObject;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Stream;
+
+/**
+ * LogQuery class filters the JSON-lines logs written with logFormat=json (see {@link TestLogContext}) by test, without loading them.
+ * Files are read line by line; exact filters are matched on the raw line (the tags are written as "key":"value", and quotes inside
+ * messages are escaped, so this cannot match message text), only matching lines are parsed. Usage:
+ * mvn compile exec:java -Dexec.mainClass=company.utils.LogQuery -Dexec.args="logs method=verifyLogin attempt=2"
+ * Arguments are files or folders (searched for *.jsonl), filters key=value on any tag (suite, class, method, udid, attempt, step,
+ * level, device), message~text for a substring of the message, --raw to print the JSON lines and --tests to list the tests found.
+ */
+public class LogQuery {
+
+    private final List<String> exact = new ArrayList<>();
+    private final List<String> messageParts = new ArrayList<>();
+    private boolean raw;
+    private boolean listTests;
+    private final Map<String, Integer> tests = new LinkedHashMap<>();
+    private long scanned;
+    private long matched;
+
+    public static void main(String[] args) throws IOException {
+        LogQuery query = new LogQuery();
+        List<Path> paths = new ArrayList<>();
+        for (String arg : args) {
+            if (arg.equals("--raw")) {
+                query.raw = true;
+            } else if (arg.equals("--tests")) {
+                query.listTests = true;
+            } else if (arg.startsWith("message~")) {
+                query.messageParts.add(arg.substring("message~".length()));
+            } else if (arg.contains("=") && !Files.exists(Paths.get(arg))) {
+                String key = arg.substring(0, arg.indexOf('='));
+                query.exact.add(JSONObject.quote(key) + ":" + JSONObject.quote(arg.substring(arg.indexOf('=') + 1)));
+            } else {
+                paths.add(Paths.get(arg));
+            }
+        }
+        if (paths.isEmpty()) {
+            paths.add(Paths.get("logs"));
+        }
+        long start = System.currentTimeMillis();
+        for (Path path : paths) {
+            query.scan(path, System.out);
+        }
+        if (query.listTests) {
+            query.tests.forEach((test, lines) -> System.out.println(test + " : " + lines + " lines"));
+        }
+        System.err.println("LogQuery : " + query.matched + " of " + query.scanned + " lines matched in " + (System.currentTimeMillis() - start) + " ms.");
+    }
+
+    private void scan(Path path, PrintStream out) throws IOException {
+        if (Files.isDirectory(path)) {
+            try (Stream<Path> files = Files.walk(path)) {
+                for (Path file : (Iterable<Path>) files.filter(f -> f.toString().endsWith(".jsonl")).sorted()::iterator) {
+                    scanFile(file, out);
+                }
+            }
+        } else {
+            scanFile(path, out);
+        }
+    }
+
+    private void scanFile(Path file, PrintStream out) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(file, StandardCharsets.UTF_8)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                scanned++;
+                if (!matchesTags(line)) {
+                    continue;
+                }
+                JSONObject event;
+                try {
+                    event = new JSONObject(line);
+                } catch (JSONException e) {
+                    //a line cut by a rollover or a crash.
+                    continue;
+                }
+                if (!matchesMessage(event.optString("message"))) {
+                    continue;
+                }
+                matched++;
+                if (listTests) {
+                    if (event.optString("method").isEmpty()) {
+                        continue;
+                    }
+                    String test = event.optString("class") + "#" + event.optString("method") + " attempt " + event.optString("attempt") + " on " + event.optString("udid");
+                    tests.merge(test, 1, Integer::sum);
+                } else if (raw) {
+                    out.println(line);
+                } else {
+                    out.println(event.optString("time") + " " + String.format("%-5s", event.optString("level")) + " [" + event.optString("method")
+                            + " #" + event.optString("attempt") + " step " + event.optString("step") + "] " + event.optString("message")
+                            + (event.optString("thrown").isEmpty() ? "" : System.lineSeparator() + event.optString("thrown")));
+                }
+            }
+        }
+    }
+
+    private boolean matchesTags(String line) {
+        for (String tag : exact) {
+            if (!line.contains(tag)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private boolean matchesMessage(String message) {
+        for (String part : messageParts) {
+            if (!message.contains(part)) {
+                return false;
+            }
+        }
+        return true;
+    }
+}
@@ -0,0 +1,78 @@
+package company.utils;
+
+import org.apache.logging.log4j.Level;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.core.config.Configurator;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilder;
+import org.apache.logging.log4j.core.config.builder.api.ConfigurationBuilderFactory;
+import org.apache.logging.log4j.core.config.builder.impl.BuiltConfiguration;
+
+import java.lang.management.ManagementFactory;
+
+/**
+ * LoggerBenchmark class compares the caller lookup of LoggerUtilities (StackWalker and a logger per class) with the previous one
+ * (Thread.getStackTrace and LogManager.getLogger on every call), measuring the time and the heap allocated per log call.
+ * Log4j is configured with a Null appender so only the logging call itself is measured, and the calls are made below a stack of
+ * the given depth, as under TestNG and Surefire. It needs no device:
+ * mvn compile exec:java -Dexec.mainClass=company.utils.LoggerBenchmark -Dexec.args="80 200000"
+ * (stack depth, calls per round).
+ */
+public class LoggerBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    public static void main(String[] args) {
+        int depth = args.length > 0 ? Integer.parseInt(args[0]) : 80;
+        int calls = args.length > 1 ? Integer.parseInt(args[1]) : 200_000;
+
+        ConfigurationBuilder<BuiltConfiguration> builder = ConfigurationBuilderFactory.newConfigurationBuilder();
+        builder.add(builder.newAppender("null", "Null"));
+        builder.add(builder.newRootLogger(Level.INFO).add(builder.newAppenderRef("null")));
+        Configurator.reconfigure(builder.build());
+
+        atDepth(depth, () -> {
+            for (Level level : new Level[]{Level.INFO, Level.WARN}) {
+                Configurator.setLevel(LoggerBenchmark.class.getName(), level);
+                String state = level == Level.INFO ? "logged" : "filtered";
+                run("getStackTrace " + state, calls, () -> previousInfo("step"));
+                run("StackWalker " + state, calls, () -> LoggerUtilities.info("step"));
+                run("Supplier " + state, calls, () -> LoggerUtilities.info(() -> "step " + depth));
+            }
+        });
+        System.out.flush();
+    }
+
+    //the lookup LoggerUtilities.info did before.
+    private static void previousInfo(String msg) {
+        LogManager.getLogger(Thread.currentThread().getStackTrace()[2].getClassName()).info(msg);
+    }
+
+    private static void run(String name, int calls, Runnable call) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long threadId = Thread.currentThread().threadId();
+        double bestNanos = Double.MAX_VALUE;
+        double bytes = 0;
+        //the first round warms up the JIT, the fastest of the others is reported.
+        for (int round = 0; round <= ROUNDS; round++) {
+            long allocated = threads.getThreadAllocatedBytes(threadId);
+            long start = System.nanoTime();
+            for (int i = 0; i < calls; i++) {
+                call.run();
+            }
+            long elapsed = System.nanoTime() - start;
+            if (round > 0) {
+                bestNanos = Math.min(bestNanos, (double) elapsed / calls);
+                bytes = (double) (threads.getThreadAllocatedBytes(threadId) - allocated) / calls;
+            }
+        }
+        System.out.println(String.format("%-24s : %8.0f ns/call, %7.0f bytes/call", name, bestNanos, bytes));
+    }
+
+    private static void atDepth(int depth, Runnable body) {
+        if (depth <= 0) {
+            body.run();
+        } else {
+            atDepth(depth - 1, body);
+        }
+    }
+}
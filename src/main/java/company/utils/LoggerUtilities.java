@@ -1,22 +1,37 @@
 package company.utils;
 
+import org.apache.logging.log4j.Level;
 import org.apache.logging.log4j.LogManager;
 import org.apache.logging.log4j.Logger;
 
+import java.util.function.Supplier;
+
 /**
  * LoggerUtilities class provides methods for logging information and error messages.
  * It includes methods for logging messages to both the console and the extent report.
+ * The logger of the calling class is found with StackWalker.getCallerClass, which reads only the caller frame instead of
+ * building the whole stack trace, and is created once per class. The Supplier overloads of info and error build the message
+ * only when it is logged; report steps take a String, since a buffered step is written long after it was logged.
+ * Steps logged to the file and the report while a test runs are kept by {@link StepBuffer} until the test ends.
  */
 public class LoggerUtilities {
 
+    private static final StackWalker WALKER = StackWalker.getInstance(StackWalker.Option.RETAIN_CLASS_REFERENCE);
+    private static final ClassValue<Logger> LOGGERS = new ClassValue<>() {
+        @Override
+        protected Logger computeValue(Class<?> type) {
+            return LogManager.getLogger(type.getName());
+        }
+    };
+
     /**
      * This method is used to log an information message to both the console and the extent report.
      * @param msg This is the message to log.
      */
     public static void infoLoggerInFileAndReport(String msg) {
-        info(msg);
-        if (null != ExtentListeners.getExtent())
-            ExtentListeners.getExtent().info(msg);
+        Class<?> caller = WALKER.getCallerClass();
+        if (!StepBuffer.record(caller, TestLogContext.nextStep(), msg))
+            writeStep(caller, msg);
     }
 
     /**
@@ -24,7 +39,9 @@ public class LoggerUtilities {
      * @param msg This is the message to log.
      */
     public static void errorLoggerInFileAndReport(String msg) {
-        error(msg);
+        //the steps that led to the error come first.
+        StepBuffer.flush();
+        log(WALKER.getCallerClass(), Level.ERROR, msg);
         if (null != ExtentListeners.getExtent())
             ExtentListeners.getExtent().fail(msg);
     }
@@ -34,8 +51,19 @@ public class LoggerUtilities {
      * @param msg This is the message to log.
      */
     public static void info(String msg) {
-        Logger logger = LogManager.getLogger(Thread.currentThread().getStackTrace()[2].getClassName());
-        logger.info(msg);
+        log(WALKER.getCallerClass(), Level.INFO, msg);
+    }
+
+    /**
+     * This method is used to log an information message to the console.
+     * @param msg This is the supplier of the message, it is called only if info messages are logged.
+     */
+    public static void info(Supplier<String> msg) {
+        Logger logger = LOGGERS.get(WALKER.getCallerClass());
+        if (logger.isInfoEnabled()) {
+            TestLogContext.nextStep();
+            logger.info(msg.get());
+        }
     }
 
     /**
@@ -43,8 +71,19 @@ public class LoggerUtilities {
      * @param msg This is the message to log.
      */
     public static void error(String msg) {
-        Logger logger = LogManager.getLogger(Thread.currentThread().getStackTrace()[2].getClassName());
-        logger.error(msg);
+        log(WALKER.getCallerClass(), Level.ERROR, msg);
+    }
+
+    /**
+     * This method is used to log an error message to the console.
+     * @param msg This is the supplier of the message, it is called only if error messages are logged.
+     */
+    public static void error(Supplier<String> msg) {
+        Logger logger = LOGGERS.get(WALKER.getCallerClass());
+        if (logger.isErrorEnabled()) {
+            TestLogContext.nextStep();
+            logger.error(msg.get());
+        }
     }
 
     /**
@@ -56,4 +95,21 @@ public class LoggerUtilities {
             ExtentListeners.getExtent().info(msg);
     }
 
+    /**
+     * This method is used to write a step to both the log file and the extent report, bypassing the step buffer.
+     * The step index of the thread is not advanced, the step was counted when it was logged.
+     * @param caller This is the class that logged the step.
+     * @param msg This is the message to write.
+     */
+    static void writeStep(Class<?> caller, String msg) {
+        LOGGERS.get(caller).info(msg);
+        if (null != ExtentListeners.getExtent())
+            ExtentListeners.getExtent().info(msg);
+    }
+
+    private static void log(Class<?> caller, Level level, String msg) {
+        TestLogContext.nextStep();
+        LOGGERS.get(caller).log(level, msg);
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,174 @@
+package company.utils;
+
+import company.base.BasePage;
+import company.driver.AppInstaller;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Stream;
+
+/**
+ * LoginStateCache class keeps the logged-in app data of every Android device, so only the first class on a device logs in through the UI.
+ * After a successful UI login the app's shared_prefs, databases and files folders are read with 'run-as' and kept on the host.
+ * Later classes on the same device write them back while the app is stopped, which restores the session without the login screen.
+ * Every capture is stored under a key built from the APK checksum and the credentials, so a new build or changed
+ * credentials in testdata.json never restore an old session. The app must be debuggable for 'run-as' to work;
+ * when it is not, capture fails once and the UI login is used as before. The snapshots are deleted when the JVM exits.
+ */
+public class LoginStateCache {
+
+    private static final String APP_DATA_FOLDERS = "shared_prefs databases files";
+    private static final String DEVICE_TEMP_FILE = "/data/local/tmp/login-state.tar";
+    private static final Map<String, String> capturedKeyByUdid = new ConcurrentHashMap<>();
+    private static final Path snapshotDir = Paths.get(System.getProperty("java.io.tmpdir"), "appium-login-state", String.valueOf(ProcessHandle.current().pid()));
+
+    static {
+        //the snapshots hold session tokens, they must not outlive the run.
+        Runtime.getRuntime().addShutdownHook(new Thread(LoginStateCache::deleteSnapshots, "login-state-cleanup"));
+    }
+
+    private LoginStateCache() {
+    }
+
+    /**
+     * This method is used to check if the login state cache is switched on for this run.
+     * @return boolean This returns true for Android runs with enableLoginStateCache set.
+     */
+    public static boolean isEnabled() {
+        String enableLoginStateCache = (System.getProperty("enableLoginStateCache") != null && System.getProperty("enableLoginStateCache").trim().length() > 0) ? System.getProperty("enableLoginStateCache").trim() : ReadProperties.getValue("enableLoginStateCache");
+        return Boolean.parseBoolean(enableLoginStateCache) && "android".equalsIgnoreCase(BasePage.getPlatform());
+    }
+
+    /**
+     * This method is used to build the cache key of a login.
+     * @param appPath This is the path of the installed APK.
+     * @param username This is the login user.
+     * @param password This is the login password.
+     * @return String This returns a key that changes whenever the APK or the credentials change.
+     */
+    public static String key(String appPath, String username, String password) {
+        return AppInstaller.checksum(appPath).substring(0, 16) + "-" + sha256((username + "\n" + password).getBytes(StandardCharsets.UTF_8)).substring(0, 16);
+    }
+
+    /**
+     * This method is used to check if a capture for the given key exists for the device.
+     * @param udid This is the unique device identifier.
+     * @param key This is the key from {@link #key(String, String, String)}.
+     * @return boolean This returns true if {@link #restore(String, String, String)} can be tried.
+     */
+    public static boolean hasCapture(String udid, String key) {
+        return key.equals(capturedKeyByUdid.get(udid));
+    }
+
+    /**
+     * This method is used to save the app data of a logged-in app.
+     * @param udid This is the unique device identifier.
+     * @param packageName This is the app package.
+     * @param key This is the key from {@link #key(String, String, String)}.
+     * @return boolean This returns true if the state was captured.
+     */
+    public static boolean capture(String udid, String packageName, String key) {
+        long start = System.currentTimeMillis();
+        try (InputStream in = AdbClient.getInstance().execOut(udid, "run-as " + packageName + " tar -cf - " + APP_DATA_FOLDERS)) {
+            byte[] archive = in.readAllBytes();
+            if (!isTarArchive(archive)) {
+                LoggerUtilities.info("Login state not captured for " + udid + ", run-as returned no archive (is the app debuggable?).");
+                return false;
+            }
+            Files.createDirectories(snapshotDir);
+            Files.write(snapshotFile(udid), archive);
+            capturedKeyByUdid.put(udid, key);
+            LoggerUtilities.info("Login state captured for " + udid + " (" + archive.length / 1024 + " KB) in " + (System.currentTimeMillis() - start) + " ms.");
+            return true;
+        } catch (IOException e) {
+            LoggerUtilities.error("Error in capturing login state for " + udid + " : " + e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * This method is used to write a captured login state back to the device. The app is stopped first and has to be activated afterwards.
+     * @param udid This is the unique device identifier.
+     * @param packageName This is the app package.
+     * @param key This is the key from {@link #key(String, String, String)}.
+     * @return boolean This returns true if a matching capture was restored, false if the UI login is needed.
+     */
+    public static boolean restore(String udid, String packageName, String key) {
+        if (!hasCapture(udid, key)) {
+            return false;
+        }
+        long start = System.currentTimeMillis();
+        AdbClient adb = AdbClient.getInstance();
+        try {
+            byte[] archive = Files.readAllBytes(snapshotFile(udid));
+            adb.shell(udid, "am force-stop " + packageName);
+            adb.push(udid, archive, DEVICE_TEMP_FILE, 0644);
+            String output = adb.shell(udid, "run-as " + packageName + " sh -c 'rm -rf " + APP_DATA_FOLDERS + " && tar -xf " + DEVICE_TEMP_FILE + "' ; rm -f " + DEVICE_TEMP_FILE);
+            if (!output.trim().isEmpty()) {
+                LoggerUtilities.error("Login state restore for " + udid + " reported : " + output.trim());
+                invalidate(udid);
+                return false;
+            }
+            LoggerUtilities.info("Login state restored on " + udid + " in " + (System.currentTimeMillis() - start) + " ms.");
+            return true;
+        } catch (IOException e) {
+            LoggerUtilities.error("Error in restoring login state on " + udid + " : " + e.getMessage());
+            invalidate(udid);
+            return false;
+        }
+    }
+
+    /**
+     * This method is used to forget the capture of a device, e.g. when a restored session turned out to be logged out.
+     * @param udid This is the unique device identifier.
+     */
+    public static void invalidate(String udid) {
+        if (capturedKeyByUdid.remove(udid) != null) {
+            try {
+                Files.deleteIfExists(snapshotFile(udid));
+            } catch (IOException ignored) {
+            }
+            LoggerUtilities.info("Login state dropped for " + udid);
+        }
+    }
+
+    private static void deleteSnapshots() {
+        if (!Files.isDirectory(snapshotDir)) {
+            return;
+        }
+        try (Stream<Path> files = Files.list(snapshotDir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.deleteIfExists(file);
+            }
+            Files.deleteIfExists(snapshotDir);
+        } catch (IOException e) {
+            System.err.println("Error in deleting login state snapshots " + snapshotDir + " : " + e.getMessage());
+        }
+    }
+
+    private static Path snapshotFile(String udid) {
+        return snapshotDir.resolve(udid.replaceAll("[^A-Za-z0-9._-]", "_") + ".tar");
+    }
+
+    private static boolean isTarArchive(byte[] archive) {
+        //POSIX tar headers carry "ustar" at offset 257.
+        return archive.length >= 512 && new String(archive, 257, 5, StandardCharsets.US_ASCII).equals("ustar");
+    }
+
+    private static String sha256(byte[] data) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(data));
+        } catch (NoSuchAlgorithmException e) {
+            throw new RuntimeException(e);
+        }
+    }
+}
@@ -0,0 +1,87 @@
+package company.utils;
+
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+
+/**
+ * LongestFirstScheduler class orders test classes by their recorded wall time, longest first.
+ * With parallel="classes" and devices handed out by {@link DevicePool}, each free device takes the longest
+ * class still waiting, which is the longest-processing-time-first strategy and keeps one long class from
+ * starting last and stretching the run. Classes without history are placed using the average duration.
+ * Only the order changes: with -Dshard it orders the classes {@link TestShard} kept, it never adds or drops one.
+ */
+public class LongestFirstScheduler implements IMethodInterceptor {
+
+    private static volatile long predictedMillis;
+
+    /**
+     * This method is used to get the suite duration predicted from history for the last ordering.
+     * @return long This returns the predicted duration in milliseconds, 0 if there was no history.
+     */
+    public static long getPredictedMillis() {
+        return predictedMillis;
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        Map<String, Long> history = TestDurationHistory.load();
+        if (history.isEmpty()) {
+            LoggerUtilities.info("No duration history yet, keeping discovery order.");
+            return methods;
+        }
+        Map<String, List<IMethodInstance>> methodsByClass = new LinkedHashMap<>();
+        for (IMethodInstance method : methods) {
+            methodsByClass.computeIfAbsent(method.getMethod().getRealClass().getName(), k -> new ArrayList<>()).add(method);
+        }
+        long averageMillis = Math.round(history.values().stream().mapToLong(Long::longValue).average().orElse(0));
+        List<String> classOrder = new ArrayList<>(methodsByClass.keySet());
+        //classes with equal duration are ordered by name, so the order does not depend on discovery order.
+        classOrder.sort((a, b) -> {
+            int byDuration = Long.compare(history.getOrDefault(b, averageMillis), history.getOrDefault(a, averageMillis));
+            return byDuration != 0 ? byDuration : a.compareTo(b);
+        });
+
+        List<IMethodInstance> ordered = new ArrayList<>(methods.size());
+        List<Long> durations = new ArrayList<>();
+        for (String className : classOrder) {
+            ordered.addAll(methodsByClass.get(className));
+            durations.add(history.getOrDefault(className, averageMillis));
+            LoggerUtilities.info("Scheduled " + className + " (expected " + history.getOrDefault(className, averageMillis) / 1000 + " s)");
+        }
+        predictedMillis = predictMakespan(durations, getDeviceCount());
+        LoggerUtilities.info("Predicted suite duration : " + predictedMillis / 1000 + " s on " + getDeviceCount() + " device(s).");
+        return ordered;
+    }
+
+    /**
+     * This method is used to simulate the run: every class in order goes to the device that frees up first.
+     * @param durations This is the list of class durations in scheduling order.
+     * @param devices This is the number of devices running in parallel.
+     * @return long This returns the predicted time until the last device finishes.
+     */
+    static long predictMakespan(List<Long> durations, int devices) {
+        PriorityQueue<Long> deviceFreeAt = new PriorityQueue<>();
+        for (int i = 0; i < Math.max(devices, 1); i++) {
+            deviceFreeAt.add(0L);
+        }
+        long makespan = 0;
+        for (long duration : durations) {
+            long finishAt = deviceFreeAt.poll() + duration;
+            makespan = Math.max(makespan, finishAt);
+            deviceFreeAt.add(finishAt);
+        }
+        return makespan;
+    }
+
+    private static int getDeviceCount() {
+        String threadCount = (System.getProperty("threadCount") != null && System.getProperty("threadCount").trim().length() > 0) ? System.getProperty("threadCount").trim() : ReadProperties.getValue("threadCount");
+        return Integer.parseInt(threadCount);
+    }
+}
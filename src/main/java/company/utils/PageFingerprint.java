@@ -0,0 +1,147 @@
+package company.utils;
+
+import company.base.BasePage;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.StringReader;
+import java.util.Set;
+
+/**
+ * PageFingerprint class tells scroll loops whether the screen changed since the last step, using one page source fetch per step.
+ * The page source is streamed once and reduced to a 64 bit hash of the visible children of the main scrollable container
+ * (the scrollable with the most visible children), so clocks, banners or carousels outside the list do not count as movement.
+ * When the screen has no scrollable container the visible nodes of the whole page are hashed.
+ * Only the hash of the previous step is kept, not the page source.
+ */
+public class PageFingerprint {
+
+    private static final long FNV_OFFSET = 0xcbf29ce484222325L;
+    private static final long FNV_PRIME = 0x100000001b3L;
+    private static final Set<String> IOS_SCROLLABLES = Set.of("XCUIElementTypeTable", "XCUIElementTypeCollectionView", "XCUIElementTypeScrollView");
+    private static final String[] HASHED_ATTRIBUTES = {"class", "text", "content-desc", "resource-id", "bounds", "type", "name", "label", "value", "x", "y", "width", "height"};
+    private static final XMLInputFactory xmlInputFactory = createXmlInputFactory();
+
+    private long previous;
+    private boolean captured;
+
+    /**
+     * This method is used to take the fingerprint of the current screen and compare it with the previous call.
+     * @return boolean This returns true on the first call and whenever the screen changed since the previous call.
+     */
+    public boolean hasChanged() {
+        long current = capture();
+        boolean changed = !captured || current != previous;
+        if (captured && changed) {
+            //elements cached by page objects may now point at recycled list rows.
+            CachingFieldDecorator.screenChanged();
+        }
+        previous = current;
+        captured = true;
+        return changed;
+    }
+
+    /**
+     * This method is used to take the fingerprint of the current screen.
+     * @return long This returns the hash of the visible content of the main scrollable container.
+     */
+    public static long capture() {
+        return fingerprint(BasePage.getDriver().getPageSource());
+    }
+
+    /**
+     * This method is used to compute the fingerprint of a page source.
+     * @param pageSource This is the Android or iOS page source XML.
+     * @return long This returns the hash of the visible content of the main scrollable container, or of the whole page if there is none.
+     */
+    public static long fingerprint(String pageSource) {
+        long wholePage = FNV_OFFSET;
+        long best = 0;
+        int bestCount = -1;
+        long container = 0;
+        int containerCount = 0;
+        int containerDepth = -1;
+        int depth = 0;
+        try {
+            XMLStreamReader reader = xmlInputFactory.createXMLStreamReader(new StringReader(pageSource));
+            try {
+                while (reader.hasNext()) {
+                    int event = reader.next();
+                    if (event == XMLStreamConstants.START_ELEMENT) {
+                        depth++;
+                        if (containerDepth < 0 && isScrollable(reader)) {
+                            containerDepth = depth;
+                            container = FNV_OFFSET;
+                            containerCount = 0;
+                            continue;
+                        }
+                        if (!isVisible(reader)) {
+                            continue;
+                        }
+                        wholePage = hashElement(reader, wholePage);
+                        if (containerDepth > 0) {
+                            container = hashElement(reader, container);
+                            containerCount++;
+                        }
+                    } else if (event == XMLStreamConstants.END_ELEMENT) {
+                        if (depth == containerDepth) {
+                            if (containerCount > bestCount) {
+                                best = container;
+                                bestCount = containerCount;
+                            }
+                            containerDepth = -1;
+                        }
+                        depth--;
+                    }
+                }
+            } finally {
+                reader.close();
+            }
+        } catch (XMLStreamException e) {
+            LoggerUtilities.error("Error in reading page source for fingerprint : " + e.getMessage());
+            //an unreadable page still gets a stable fingerprint so scroll loops can end.
+            return hash(FNV_OFFSET, pageSource);
+        }
+        return bestCount >= 0 ? best : wholePage;
+    }
+
+    private static boolean isScrollable(XMLStreamReader reader) {
+        return "true".equals(reader.getAttributeValue(null, "scrollable")) || IOS_SCROLLABLES.contains(reader.getLocalName());
+    }
+
+    private static boolean isVisible(XMLStreamReader reader) {
+        return !"false".equals(reader.getAttributeValue(null, "displayed")) && !"false".equals(reader.getAttributeValue(null, "visible"));
+    }
+
+    private static long hashElement(XMLStreamReader reader, long hash) {
+        hash = hash(hash, reader.getLocalName());
+        for (String attribute : HASHED_ATTRIBUTES) {
+            String value = reader.getAttributeValue(null, attribute);
+            if (value != null) {
+                hash = hash(hash, attribute);
+                hash = hash(hash, value);
+            }
+        }
+        return hash;
+    }
+
+    //FNV-1a over the characters, with a separator so "ab"+"c" and "a"+"bc" differ.
+    private static long hash(long hash, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            hash ^= value.charAt(i);
+            hash *= FNV_PRIME;
+        }
+        hash ^= 0xff;
+        hash *= FNV_PRIME;
+        return hash;
+    }
+
+    private static XMLInputFactory createXmlInputFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+}
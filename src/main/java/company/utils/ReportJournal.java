@@ -0,0 +1,363 @@
+package company.utils;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.ExtentTest;
+import com.aventstack.extentreports.Status;
+import com.aventstack.extentreports.gson.GsonExtentTypeAdapterBuilder;
+import com.aventstack.extentreports.model.SystemEnvInfo;
+import com.google.gson.Gson;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * ReportJournal class writes the report incrementally: every finished test is appended to a journal next to the HTML report
+ * (AppiumReport_*.ndjson, one Extent test per line in the JSON archive format) and synced to disk, then removed from the live
+ * ExtentReports, so the heap does not grow with the suite and a crash loses at most the running tests.
+ * A test counts as finished when the next test starts on its thread, its class ends or the suite ends, so logs added by
+ * @AfterMethod are kept. Every 'reportRefreshEvery' tests the journal lines appended since the last page are written on a
+ * background thread as one more HTML page (AppiumReport_*_partN.html), and the report file itself becomes an index of the pages.
+ * A page is built from its own slice of the journal only, so a refresh costs the same at the end of the suite as at the start and
+ * never holds more than one page of tests. After a crash the written pages stay readable; the whole run, including the tests of the
+ * last unfinished page, can be rebuilt into one report with {@link ReportMerger}. Enabled with 'incrementalReport' in config.properties.
+ */
+public class ReportJournal {
+
+    private static final Gson gson = GsonExtentTypeAdapterBuilder.builder().withGsonTypeAdapterFactory().build();
+    private static final Map<Thread, ExtentTest> running = new ConcurrentHashMap<>();
+    private static final List<Page> writtenPages = new ArrayList<>();
+    private static final long FINISH_TIMEOUT_MINUTES = 10;
+    private static final ExecutorService renderer = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "report-renderer");
+        t.setDaemon(true);
+        return t;
+    });
+
+    private static ExtentReports live;
+    private static String htmlFile;
+    private static Path journal;
+    private static volatile FileChannel channel;
+    private static int pageSize;
+    private static long journalLength;
+    private static Page openPage;
+
+    private ReportJournal() {
+    }
+
+    /**
+     * This method is used to check if the report is written incrementally.
+     * @return boolean This returns true if 'incrementalReport' is true.
+     */
+    public static boolean isEnabled() {
+        String incrementalReport = (System.getProperty("incrementalReport") != null && System.getProperty("incrementalReport").trim().length() > 0) ? System.getProperty("incrementalReport").trim() : ReadProperties.getValue("incrementalReport");
+        return Boolean.parseBoolean(incrementalReport);
+    }
+
+    /**
+     * This method is used to start the journal of a report.
+     * @param extent This is the live ExtentReports the tests are created in, its system info is copied to the HTML pages.
+     * @param fileName This is the path of the HTML report, the journal and the pages are written next to it.
+     */
+    public static synchronized void open(ExtentReports extent, String fileName) {
+        live = extent;
+        htmlFile = fileName;
+        journal = Paths.get(fileName.replaceAll("\\.html$", "") + ".ndjson");
+        try {
+            Files.createDirectories(journal.toAbsolutePath().getParent());
+            channel = FileChannel.open(journal, StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.TRUNCATE_EXISTING);
+            pageSize = Math.max(1, Integer.parseInt(getReportRefreshEvery()));
+            journalLength = 0;
+            openPage = new Page(1, 0);
+            synchronized (writtenPages) {
+                writtenPages.clear();
+            }
+            LoggerUtilities.info("Report journal : " + journal.toAbsolutePath());
+        } catch (IOException e) {
+            LoggerUtilities.error("Error in opening report journal " + journal + " : " + e.getMessage());
+            channel = null;
+        }
+    }
+
+    /**
+     * This method is used to register the test that starts on the current thread; the previous test of the thread is finished.
+     * @param test This is the test that starts.
+     */
+    public static void started(ExtentTest test) {
+        if (channel == null) {
+            return;
+        }
+        ExtentTest previous = running.put(Thread.currentThread(), test);
+        if (previous != null && previous != test) {
+            commit(previous);
+        }
+    }
+
+    /**
+     * This method is used to finish the test of the current thread, e.g. when its class ends.
+     */
+    public static void finishCurrentThread() {
+        if (channel == null) {
+            return;
+        }
+        ExtentTest test = running.remove(Thread.currentThread());
+        if (test != null) {
+            commit(test);
+        }
+    }
+
+    /**
+     * This method is used to finish the tests of all threads, write the last page and the index, and wait until they are on disk.
+     */
+    public static void finishAll() {
+        for (Thread thread : running.keySet()) {
+            ExtentTest test = running.remove(thread);
+            if (test != null) {
+                commit(test);
+            }
+        }
+        synchronized (ReportJournal.class) {
+            if (channel == null) {
+                return;
+            }
+            if (openPage.tests > 0) {
+                closePage();
+            }
+        }
+        try {
+            renderer.submit(ReportJournal::writeIndex).get(FINISH_TIMEOUT_MINUTES, TimeUnit.MINUTES);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (ExecutionException | TimeoutException e) {
+            LoggerUtilities.error("Error in finishing report pages : " + e.getMessage());
+        }
+    }
+
+    private static void commit(ExtentTest test) {
+        String line = gson.toJson(test.getModel()) + "\n";
+        synchronized (ReportJournal.class) {
+            if (channel == null) {
+                return;
+            }
+            try {
+                byte[] bytes = line.getBytes(StandardCharsets.UTF_8);
+                ByteBuffer buffer = ByteBuffer.wrap(bytes);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                channel.force(false);
+                journalLength += bytes.length;
+            } catch (IOException e) {
+                LoggerUtilities.error("Error in writing report journal : " + e.getMessage());
+                return;
+            }
+            openPage.add(test.getModel().getStatus());
+            //the test is on disk now, the live report does not need to keep it.
+            synchronized (live) {
+                live.removeTest(test);
+            }
+            if (openPage.tests >= pageSize) {
+                closePage();
+            }
+        }
+    }
+
+    //called under the journal lock: the bytes of the page are on disk and do not change, it is rendered without the lock.
+    private static void closePage() {
+        Page page = openPage;
+        page.to = journalLength;
+        openPage = new Page(page.number + 1, journalLength);
+        renderer.submit(() -> render(page));
+    }
+
+    //writes the tests of one page, read from its slice of the journal, then the index.
+    private static void render(Page page) {
+        long start = System.currentTimeMillis();
+        Path archive = journal.resolveSibling(journal.getFileName() + ".part" + page.number + ".json");
+        try {
+            toJsonArchive(journal, archive, page.from, page.to);
+            ExtentReports extent = new ExtentReports();
+            extent.createDomainFromJsonArchive(archive.toFile());
+            ExtentManager.attachHtmlReporter(extent, page.getFile());
+            for (SystemEnvInfo info : live.getReport().getSystemEnvInfo()) {
+                extent.setSystemInfo(info.getName(), info.getValue());
+            }
+            extent.flush();
+            synchronized (writtenPages) {
+                writtenPages.add(page);
+            }
+            writeIndex();
+            LoggerUtilities.info("Report page " + page.number + " written from journal : " + page.tests + " tests in " + (System.currentTimeMillis() - start) + " ms.");
+        } catch (Exception e) {
+            LoggerUtilities.error("Error in writing report page " + page.number + " from journal : " + e.getMessage());
+        } finally {
+            try {
+                Files.deleteIfExists(archive);
+            } catch (IOException ignored) {
+            }
+        }
+    }
+
+    //the report file lists the pages; it is replaced in one move so a crash never leaves half an index.
+    private static void writeIndex() {
+        List<Page> pages;
+        synchronized (writtenPages) {
+            pages = new ArrayList<>(writtenPages);
+        }
+        int tests = 0;
+        int failed = 0;
+        int skipped = 0;
+        StringBuilder items = new StringBuilder();
+        for (Page page : pages) {
+            items.append("<li><a href=\"").append(escape(Paths.get(page.getFile()).getFileName().toString())).append("\">Part ").append(page.number)
+                    .append("</a> : tests ").append(tests + 1).append(" to ").append(tests + page.tests)
+                    .append(", ").append(page.failed).append(" failed, ").append(page.skipped).append(" skipped</li>\n");
+            tests += page.tests;
+            failed += page.failed;
+            skipped += page.skipped;
+        }
+        String title = escape(Paths.get(htmlFile).getFileName().toString());
+        String html = "<!DOCTYPE html>\n<html>\n<head><meta charset=\"utf-8\"><title>" + title + "</title></head>\n<body>\n<h1>" + title + "</h1>\n"
+                + "<p>" + tests + " tests, " + failed + " failed, " + skipped + " skipped.</p>\n<ul>\n" + items + "</ul>\n</body>\n</html>\n";
+        Path index = Paths.get(htmlFile);
+        Path part = index.resolveSibling(index.getFileName() + ".part");
+        try {
+            Files.writeString(part, html, StandardCharsets.UTF_8);
+            Files.move(part, index, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            LoggerUtilities.error("Error in writing report index " + index + " : " + e.getMessage());
+        }
+    }
+
+    private static String escape(String text) {
+        return text.replace("&", "&amp;").replace("<", "&lt;").replace(">", "&gt;").replace("\"", "&quot;");
+    }
+
+    /**
+     * This method is used to turn a journal into a JSON archive that ExtentReports.createDomainFromJsonArchive reads.
+     * The journal is streamed line by line, a line cut by a crash is skipped.
+     * @param journal This is the journal file.
+     * @param archive This is the JSON archive to write.
+     * @throws IOException If the journal cannot be read or the archive cannot be written.
+     */
+    static void toJsonArchive(Path journal, Path archive) throws IOException {
+        toJsonArchive(journal, archive, 0, Long.MAX_VALUE);
+    }
+
+    /**
+     * This method is used to turn a slice of a journal into a JSON archive, the slice must start and end at a line break.
+     * @param journal This is the journal file.
+     * @param archive This is the JSON archive to write.
+     * @param from This is the offset of the first journal byte to read.
+     * @param to This is the offset after the last journal byte to read.
+     * @throws IOException If the journal cannot be read or the archive cannot be written.
+     */
+    static void toJsonArchive(Path journal, Path archive, long from, long to) throws IOException {
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(slice(journal, from, to), StandardCharsets.UTF_8));
+             BufferedWriter writer = Files.newBufferedWriter(archive, StandardCharsets.UTF_8)) {
+            writer.write("[");
+            boolean first = true;
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String test = line.trim();
+                if (!test.startsWith("{") || !test.endsWith("}")) {
+                    continue;
+                }
+                if (!first) {
+                    writer.write(",");
+                }
+                writer.write(test);
+                writer.newLine();
+                first = false;
+            }
+            writer.write("]");
+        }
+    }
+
+    private static InputStream slice(Path journal, long from, long to) throws IOException {
+        FileChannel source = FileChannel.open(journal, StandardOpenOption.READ);
+        source.position(from);
+        return new FilterInputStream(Channels.newInputStream(source)) {
+            private long remaining = to - from;
+
+            @Override
+            public int read() throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int b = super.read();
+                if (b >= 0) {
+                    remaining--;
+                }
+                return b;
+            }
+
+            @Override
+            public int read(byte[] b, int off, int len) throws IOException {
+                if (remaining <= 0) {
+                    return -1;
+                }
+                int n = super.read(b, off, (int) Math.min(len, remaining));
+                if (n > 0) {
+                    remaining -= n;
+                }
+                return n;
+            }
+        };
+    }
+
+    private static String getReportRefreshEvery() {
+        return (System.getProperty("reportRefreshEvery") != null && System.getProperty("reportRefreshEvery").trim().length() > 0) ? System.getProperty("reportRefreshEvery").trim() : ReadProperties.getValue("reportRefreshEvery");
+    }
+
+    /**
+     * Page class is one slice of the journal written as its own HTML page, with the counts shown in the index.
+     */
+    private static class Page {
+        private final int number;
+        private final long from;
+        private long to;
+        private int tests;
+        private int failed;
+        private int skipped;
+
+        Page(int number, long from) {
+            this.number = number;
+            this.from = from;
+        }
+
+        void add(Status status) {
+            tests++;
+            if (status == Status.FAIL) {
+                failed++;
+            } else if (status == Status.SKIP) {
+                skipped++;
+            }
+        }
+
+        String getFile() {
+            return htmlFile.replaceAll("\\.html$", "") + "_part" + number + ".html";
+        }
+    }
+}
@@ -0,0 +1,63 @@
+package company.utils;
+
+import com.aventstack.extentreports.ExtentReports;
+import com.aventstack.extentreports.reporter.ExtentSparkReporter;
+import com.aventstack.extentreports.reporter.configuration.Theme;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+
+/**
+ * ReportMerger class combines the partial reports written by the shards of one run into a single HTML report.
+ * Every shard leaves an AppiumReport_*_shardXofY.json archive in its reports folder; collect them in one folder and run
+ * mvn compile exec:java -Dexec.mainClass=company.utils.ReportMerger -Dexec.args="reports AppiumReport_merged.html"
+ * Report journals (*.ndjson, see {@link ReportJournal}) are read as well, so the report of a run that crashed can be rebuilt the same way.
+ */
+public class ReportMerger {
+
+    public static void main(String[] args) throws IOException {
+        File reportsDir = new File(args.length > 0 ? args[0] : "reports");
+        String output = args.length > 1 ? args[1] : "AppiumReport_merged.html";
+
+        //a journal holds every finished test, so it wins over the JSON archive of the same shard.
+        File[] archives = reportsDir.listFiles((dir, name) -> name.matches(".*_shard\\d+of\\d+\\.(nd)?json")
+                && !(name.endsWith(".json") && new File(dir, name.replaceAll("\\.json$", ".ndjson")).exists()));
+        if (archives == null || archives.length == 0) {
+            //no shards: rebuild the report of a run that stopped before it was written, from its journal.
+            archives = reportsDir.listFiles((dir, name) -> name.endsWith(".ndjson"));
+        }
+        if (archives == null || archives.length == 0) {
+            LoggerUtilities.error("No shard reports or report journals found in " + reportsDir.getAbsolutePath());
+            return;
+        }
+        Arrays.sort(archives);
+
+        ExtentSparkReporter htmlReporter = new ExtentSparkReporter(new File(reportsDir, output));
+        htmlReporter.config().setTheme(Theme.STANDARD);
+        htmlReporter.config().setDocumentTitle(output);
+        htmlReporter.config().setEncoding("utf-8");
+        htmlReporter.config().setReportName(output);
+
+        ExtentReports extent = new ExtentReports();
+        for (File archive : archives) {
+            if (archive.getName().endsWith(".ndjson")) {
+                Path converted = Files.createTempFile("report-journal", ".json");
+                try {
+                    ReportJournal.toJsonArchive(archive.toPath(), converted);
+                    extent.createDomainFromJsonArchive(converted.toFile());
+                } finally {
+                    Files.deleteIfExists(converted);
+                }
+            } else {
+                extent.createDomainFromJsonArchive(archive);
+            }
+            LoggerUtilities.info("Merged shard report : " + archive.getName());
+        }
+        extent.attachReporter(htmlReporter);
+        extent.flush();
+        LoggerUtilities.info("Merged report generated at : " + new File(reportsDir, output).getAbsolutePath());
+    }
+}
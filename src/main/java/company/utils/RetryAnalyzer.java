@@ -14,4 +14,8 @@ public class RetryAnalyzer implements IRetryAnalyzer {
         }
         return false;  // Do not retry
     }
+
+    public int getRetryCount() {
+        return retryCount;
+    }
 }
@@ -0,0 +1,195 @@
+package company.utils;
+
+import company.base.BasePage;
+import io.appium.java_client.AppiumDriver;
+import io.appium.java_client.remote.SupportsRotation;
+import org.openqa.selenium.Dimension;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.ScreenOrientation;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+import org.openqa.selenium.remote.SessionId;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * ScreenGeometry class keeps the window size of every Appium session, so gestures do not ask the device for it on every swipe.
+ * The size is read once per session (or taken from the health check of a pooled session) and the orientation is derived from it.
+ * Safe insets (status and navigation bars, notch) are only read when asked for. The cached values are dropped when the
+ * screen is rotated through {@link #rotate(ScreenOrientation)} and when the session is closed.
+ */
+public class ScreenGeometry {
+
+    private static final Map<SessionId, ScreenGeometry> bySession = new ConcurrentHashMap<>();
+
+    private final Dimension windowSize;
+    private volatile Insets safeInsets;
+
+    private ScreenGeometry(Dimension windowSize) {
+        this.windowSize = windowSize;
+    }
+
+    /**
+     * This method is used to get the geometry of the session of the current thread.
+     * @return ScreenGeometry This returns the cached geometry, read from the device on the first call of the session.
+     */
+    public static ScreenGeometry current() {
+        AppiumDriver driver = BasePage.getDriver();
+        SessionId sessionId = driver.getSessionId();
+        if (sessionId == null) {
+            return new ScreenGeometry(driver.manage().window().getSize());
+        }
+        return bySession.computeIfAbsent(sessionId, id -> new ScreenGeometry(driver.manage().window().getSize()));
+    }
+
+    /**
+     * This method is used to store a window size that was read anyway, e.g. by the health check of a pooled session.
+     * @param driver This is the session the size belongs to.
+     * @param windowSize This is the window size just read from the device.
+     */
+    public static void remember(AppiumDriver driver, Dimension windowSize) {
+        if (driver.getSessionId() != null) {
+            bySession.put(driver.getSessionId(), new ScreenGeometry(windowSize));
+        }
+    }
+
+    /**
+     * This method is used to rotate the screen of the current thread and drop the cached geometry.
+     * @param orientation This is the new orientation.
+     */
+    public static void rotate(ScreenOrientation orientation) {
+        AppiumDriver driver = BasePage.getDriver();
+        ((SupportsRotation) driver).rotate(orientation);
+        forget(driver);
+        LoggerUtilities.info("Screen rotated to " + orientation + ", screen geometry will be read again.");
+    }
+
+    /**
+     * This method is used to drop the cached geometry of a session, e.g. when it is closed or the app rotated the screen itself.
+     * @param driver This is the session.
+     */
+    public static void forget(AppiumDriver driver) {
+        if (driver != null && driver.getSessionId() != null) {
+            bySession.remove(driver.getSessionId());
+        }
+    }
+
+    /**
+     * This method is used to get the center of an element with one getRect call instead of separate location and size calls.
+     * @param element This is the element.
+     * @return Point This returns the center of the element.
+     */
+    public static Point getCenter(WebElement element) {
+        Rectangle rect = element.getRect();
+        return new Point(rect.getX() + rect.getWidth() / 2, rect.getY() + rect.getHeight() / 2);
+    }
+
+    /**
+     * This method is used to get the window size.
+     * @return Dimension This returns the window size of the session.
+     */
+    public Dimension getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * This method is used to get the window width.
+     * @return int This returns the width in pixels (Android) or points (iOS).
+     */
+    public int getWidth() {
+        return windowSize.getWidth();
+    }
+
+    /**
+     * This method is used to get the window height.
+     * @return int This returns the height in pixels (Android) or points (iOS).
+     */
+    public int getHeight() {
+        return windowSize.getHeight();
+    }
+
+    /**
+     * This method is used to get the orientation, derived from the window size without a device call.
+     * @return ScreenOrientation This returns LANDSCAPE when the window is wider than high, PORTRAIT otherwise.
+     */
+    public ScreenOrientation getOrientation() {
+        return windowSize.getWidth() > windowSize.getHeight() ? ScreenOrientation.LANDSCAPE : ScreenOrientation.PORTRAIT;
+    }
+
+    /**
+     * This method is used to get the parts of the screen covered by system bars. They are read from the device on the first call.
+     * @return Insets This returns the safe insets, all zero if the device does not report them.
+     */
+    public Insets getSafeInsets() {
+        if (safeInsets == null) {
+            safeInsets = readSafeInsets();
+        }
+        return safeInsets;
+    }
+
+    @SuppressWarnings("unchecked")
+    private Insets readSafeInsets() {
+        AppiumDriver driver = BasePage.getDriver();
+        try {
+            if ("android".equalsIgnoreCase(BasePage.getPlatform())) {
+                Map<String, Object> bars = (Map<String, Object>) driver.executeScript("mobile: getSystemBars");
+                int top = barHeight((Map<String, Object>) bars.get("statusBar"));
+                int bottom = barHeight((Map<String, Object>) bars.get("navigationBar"));
+                return new Insets(top, bottom, 0, 0);
+            }
+            Map<String, Object> info = (Map<String, Object>) driver.executeScript("mobile: deviceScreenInfo");
+            Map<String, Object> statusBar = (Map<String, Object>) info.get("statusBarSize");
+            return new Insets(statusBar == null ? 0 : ((Number) statusBar.get("height")).intValue(), 0, 0, 0);
+        } catch (WebDriverException | ClassCastException | NullPointerException e) {
+            LoggerUtilities.error("Error in reading safe insets : " + e.getMessage());
+            return new Insets(0, 0, 0, 0);
+        }
+    }
+
+    private static int barHeight(Map<String, Object> bar) {
+        if (bar == null || Boolean.FALSE.equals(bar.get("visible")) || !(bar.get("height") instanceof Number)) {
+            return 0;
+        }
+        return ((Number) bar.get("height")).intValue();
+    }
+
+    /**
+     * Insets class holds the sizes of the screen edges covered by system UI.
+     */
+    public static class Insets {
+        private final int top;
+        private final int bottom;
+        private final int left;
+        private final int right;
+
+        Insets(int top, int bottom, int left, int right) {
+            this.top = top;
+            this.bottom = bottom;
+            this.left = left;
+            this.right = right;
+        }
+
+        public int getTop() {
+            return top;
+        }
+
+        public int getBottom() {
+            return bottom;
+        }
+
+        public int getLeft() {
+            return left;
+        }
+
+        public int getRight() {
+            return right;
+        }
+
+        @Override
+        public String toString() {
+            return "top=" + top + ", bottom=" + bottom + ", left=" + left + ", right=" + right;
+        }
+    }
+}
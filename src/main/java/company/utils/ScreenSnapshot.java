@@ -0,0 +1,391 @@
+package company.utils;
+
+import company.base.BasePage;
+import io.appium.java_client.AppiumBy;
+import org.openqa.selenium.By;
+import org.openqa.selenium.Point;
+import org.openqa.selenium.Rectangle;
+import org.openqa.selenium.WebElement;
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.InputSource;
+import org.xml.sax.SAXException;
+
+import javax.xml.XMLConstants;
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+import javax.xml.xpath.XPath;
+import javax.xml.xpath.XPathConstants;
+import javax.xml.xpath.XPathExpressionException;
+import javax.xml.xpath.XPathFactory;
+import java.io.IOException;
+import java.io.StringReader;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ScreenSnapshot class resolves many locators against one page source instead of one findElement round-trip per locator.
+ * The page source is fetched once and parsed into an in-memory tree with indexes by accessibility id, resource-id and text,
+ * so lookups by those are map reads and XPath locators are evaluated locally. Only the nodes that are acted on go back to the
+ * device, either as coordinates ({@link SnapshotNode#tap()}) or as a driver element ({@link SnapshotNode#toElement()}).
+ * A snapshot is a picture of one moment; take a new one after anything that changes the screen.
+ */
+public class ScreenSnapshot {
+
+    private static final Pattern ANDROID_BOUNDS = Pattern.compile("\\[(-?\\d+),(-?\\d+)]\\[(-?\\d+),(-?\\d+)]");
+    private static final ThreadLocal<DocumentBuilder> documentBuilder = ThreadLocal.withInitial(ScreenSnapshot::createDocumentBuilder);
+    private static final ThreadLocal<XPath> xpath = ThreadLocal.withInitial(() -> XPathFactory.newInstance().newXPath());
+
+    private final Document document;
+    private final String pageSource;
+    private final boolean android;
+    private final Map<String, List<SnapshotNode>> byAccessibilityId = new HashMap<>();
+    private final Map<String, List<SnapshotNode>> byResourceId = new HashMap<>();
+    private final Map<String, List<SnapshotNode>> byText = new HashMap<>();
+    private final Map<Element, SnapshotNode> nodes = new HashMap<>();
+    private final List<SnapshotNode> nodesInOrder = new ArrayList<>();
+
+    /**
+     * This is the constructor for the ScreenSnapshot class.
+     * @param pageSource This is the Android or iOS page source XML.
+     * @param android This indicates whether the page source comes from UiAutomator2 (true) or XCUITest (false).
+     */
+    public ScreenSnapshot(String pageSource, boolean android) {
+        this.android = android;
+        this.pageSource = pageSource;
+        try {
+            this.document = documentBuilder.get().parse(new InputSource(new StringReader(pageSource)));
+        } catch (SAXException | IOException e) {
+            throw new IllegalArgumentException("Page source is not readable : " + e.getMessage(), e);
+        }
+        index(document.getDocumentElement());
+    }
+
+    /**
+     * This method is used to take a snapshot of the current screen with a single page source call.
+     * @return ScreenSnapshot This returns the snapshot of the current screen.
+     */
+    public static ScreenSnapshot take() {
+        long start = System.currentTimeMillis();
+        ScreenSnapshot snapshot = new ScreenSnapshot(BasePage.getDriver().getPageSource(), "android".equalsIgnoreCase(BasePage.getPlatform()));
+        LoggerUtilities.info("Screen snapshot of " + snapshot.nodes.size() + " nodes taken in " + (System.currentTimeMillis() - start) + " ms.");
+        return snapshot;
+    }
+
+    /**
+     * This method is used to get the nodes with the given accessibility id (content-desc on Android, name on iOS).
+     * @param accessibilityId This is the accessibility id.
+     * @return List This returns the matching nodes in document order, empty if there is none.
+     */
+    public List<SnapshotNode> byAccessibilityId(String accessibilityId) {
+        return byAccessibilityId.getOrDefault(accessibilityId, Collections.emptyList());
+    }
+
+    /**
+     * This method is used to get the nodes with the given resource-id. The id may be given with or without the "package:id/" prefix.
+     * @param resourceId This is the resource-id.
+     * @return List This returns the matching nodes in document order, empty if there is none.
+     */
+    public List<SnapshotNode> byResourceId(String resourceId) {
+        return byResourceId.getOrDefault(resourceId, Collections.emptyList());
+    }
+
+    /**
+     * This method is used to get the nodes with the given text (text on Android, label or value on iOS).
+     * @param text This is the exact text.
+     * @return List This returns the matching nodes in document order, empty if there is none.
+     */
+    public List<SnapshotNode> byText(String text) {
+        return byText.getOrDefault(text, Collections.emptyList());
+    }
+
+    /**
+     * This method is used to evaluate an XPath expression on the snapshot.
+     * @param expression This is the XPath expression, e.g. "//android.widget.TextView[@text='PRODUCTS']".
+     * @return List This returns the matching nodes in document order, empty if there is none.
+     */
+    public List<SnapshotNode> byXPath(String expression) {
+        try {
+            NodeList result = (NodeList) xpath.get().evaluate(expression, document, XPathConstants.NODESET);
+            List<SnapshotNode> matches = new ArrayList<>(result.getLength());
+            for (int i = 0; i < result.getLength(); i++) {
+                SnapshotNode node = nodes.get(result.item(i));
+                if (node != null) {
+                    matches.add(node);
+                }
+            }
+            return matches;
+        } catch (XPathExpressionException e) {
+            throw new IllegalArgumentException("Invalid XPath : " + expression, e);
+        }
+    }
+
+    /**
+     * This method is used to get all nodes matching a locator. Accessibility id, id, name, class name and XPath locators are supported.
+     * @param by This is the locator, e.g. AppiumBy.accessibilityId("test-Price").
+     * @return List This returns the matching nodes in document order, empty if there is none.
+     * @throws IllegalArgumentException If the locator strategy cannot be evaluated locally.
+     */
+    public List<SnapshotNode> findAll(By by) {
+        if (!(by instanceof By.Remotable)) {
+            throw new IllegalArgumentException("Locator cannot be evaluated on a snapshot : " + by);
+        }
+        By.Remotable.Parameters parameters = ((By.Remotable) by).getRemoteParameters();
+        String value = String.valueOf(parameters.value());
+        switch (parameters.using()) {
+            case "accessibility id":
+            case "name":
+                return byAccessibilityId(value);
+            case "id":
+                return android ? byResourceId(value) : byAccessibilityId(value);
+            case "xpath":
+                return byXPath(value);
+            case "class name":
+                return byXPath("//*[name()='" + value + "']");
+            default:
+                throw new IllegalArgumentException("Locator cannot be evaluated on a snapshot : " + by);
+        }
+    }
+
+    /**
+     * This method is used to check if a locator can be evaluated on a snapshot.
+     * @param by This is the locator.
+     * @return boolean This returns true for accessibility id, id, name, class name and XPath locators.
+     */
+    public static boolean supports(By by) {
+        return by instanceof By.Remotable
+                && Set.of("accessibility id", "name", "id", "xpath", "class name").contains(((By.Remotable) by).getRemoteParameters().using());
+    }
+
+    /**
+     * This method is used to get the first node matching a locator.
+     * @param by This is the locator.
+     * @return SnapshotNode This returns the first matching node, or null if the locator matches nothing on the snapshot.
+     */
+    public SnapshotNode find(By by) {
+        List<SnapshotNode> matches = findAll(by);
+        return matches.isEmpty() ? null : matches.get(0);
+    }
+
+    /**
+     * This method is used to check if a locator matches a node on the snapshot.
+     * @param by This is the locator.
+     * @return boolean This returns true if at least one node matches.
+     */
+    public boolean isPresent(By by) {
+        return !findAll(by).isEmpty();
+    }
+
+    /**
+     * This method is used to get all nodes of the snapshot.
+     * @return List This returns the nodes in document order.
+     */
+    public List<SnapshotNode> getNodes() {
+        return Collections.unmodifiableList(nodesInOrder);
+    }
+
+    /**
+     * This method is used to get the page source the snapshot was built from, e.g. for {@link PageFingerprint#fingerprint(String)}.
+     * @return String This returns the page source XML.
+     */
+    public String getPageSource() {
+        return pageSource;
+    }
+
+    /**
+     * This method is used to get the number of nodes on the snapshot.
+     * @return int This returns the number of element nodes.
+     */
+    public int size() {
+        return nodes.size();
+    }
+
+    private void index(Element element) {
+        SnapshotNode node = new SnapshotNode(element);
+        nodes.put(element, node);
+        nodesInOrder.add(node);
+        if (android) {
+            addTo(byAccessibilityId, element.getAttribute("content-desc"), node);
+            String resourceId = element.getAttribute("resource-id");
+            addTo(byResourceId, resourceId, node);
+            int idStart = resourceId.indexOf(":id/");
+            if (idStart >= 0) {
+                addTo(byResourceId, resourceId.substring(idStart + 4), node);
+            }
+            addTo(byText, element.getAttribute("text"), node);
+        } else {
+            addTo(byAccessibilityId, element.getAttribute("name"), node);
+            addTo(byText, element.getAttribute("label"), node);
+            if (!element.getAttribute("value").equals(element.getAttribute("label"))) {
+                addTo(byText, element.getAttribute("value"), node);
+            }
+        }
+        for (Node child = element.getFirstChild(); child != null; child = child.getNextSibling()) {
+            if (child instanceof Element) {
+                index((Element) child);
+            }
+        }
+    }
+
+    private static void addTo(Map<String, List<SnapshotNode>> index, String key, SnapshotNode node) {
+        if (key != null && !key.isEmpty()) {
+            index.computeIfAbsent(key, k -> new ArrayList<>(1)).add(node);
+        }
+    }
+
+    private static DocumentBuilder createDocumentBuilder() {
+        try {
+            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
+            factory.setFeature(XMLConstants.FEATURE_SECURE_PROCESSING, true);
+            factory.setFeature("http://apache.org/xml/features/disallow-doctype-decl", true);
+            factory.setExpandEntityReferences(false);
+            return factory.newDocumentBuilder();
+        } catch (ParserConfigurationException e) {
+            throw new IllegalStateException("Cannot create XML parser : " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * SnapshotNode class is one element of a snapshot. Reading it costs no remote call.
+     */
+    public class SnapshotNode {
+
+        private final Element element;
+
+        private SnapshotNode(Element element) {
+            this.element = element;
+        }
+
+        /**
+         * This method is used to get the element type, e.g. android.widget.TextView or XCUIElementTypeButton.
+         * @return String This returns the tag name of the node.
+         */
+        public String getTagName() {
+            return element.getTagName();
+        }
+
+        /**
+         * This method is used to get an attribute of the node as it was in the page source.
+         * @param name This is the attribute name, e.g. "content-desc", "enabled" or "label".
+         * @return String This returns the attribute value, or null if the node does not have it.
+         */
+        public String getAttribute(String name) {
+            return element.hasAttribute(name) ? element.getAttribute(name) : null;
+        }
+
+        /**
+         * This method is used to get the text of the node, the same value getTextFromAttribute reads (text on Android, label on iOS).
+         * @return String This returns the text, or null if the node has none.
+         */
+        public String getText() {
+            return getAttribute(android ? "text" : "label");
+        }
+
+        /**
+         * This method is used to check if the node was displayed when the snapshot was taken.
+         * @return boolean This returns false only if the page source marks the node as not displayed.
+         */
+        public boolean isDisplayed() {
+            return !"false".equals(getAttribute("displayed")) && !"false".equals(getAttribute("visible"));
+        }
+
+        /**
+         * This method is used to get the position and size of the node on the screen.
+         * @return Rectangle This returns the bounds of the node, or null if the page source has none.
+         */
+        public Rectangle getRect() {
+            if (android) {
+                String bounds = getAttribute("bounds");
+                Matcher matcher = bounds == null ? null : ANDROID_BOUNDS.matcher(bounds);
+                if (matcher == null || !matcher.matches()) {
+                    return null;
+                }
+                int x1 = Integer.parseInt(matcher.group(1));
+                int y1 = Integer.parseInt(matcher.group(2));
+                return new Rectangle(x1, y1, Integer.parseInt(matcher.group(4)) - y1, Integer.parseInt(matcher.group(3)) - x1);
+            }
+            if (!element.hasAttribute("x") || !element.hasAttribute("width")) {
+                return null;
+            }
+            return new Rectangle(Integer.parseInt(element.getAttribute("x")), Integer.parseInt(element.getAttribute("y")),
+                    Integer.parseInt(element.getAttribute("height")), Integer.parseInt(element.getAttribute("width")));
+        }
+
+        /**
+         * This method is used to get the center of the node on the screen.
+         * @return Point This returns the center of the bounds, or null if the page source has no bounds.
+         */
+        public Point getCenter() {
+            Rectangle rect = getRect();
+            return rect == null ? null : new Point(rect.getX() + rect.getWidth() / 2, rect.getY() + rect.getHeight() / 2);
+        }
+
+        /**
+         * This method is used to tap the center of the node, without looking the element up on the device.
+         */
+        public void tap() {
+            Point center = getCenter();
+            if (center == null) {
+                throw new IllegalStateException("Node has no bounds to tap : " + getXPath());
+            }
+            CommonGestures.tapLocation(center.getX(), center.getY());
+        }
+
+        /**
+         * This method is used to get an absolute XPath that selects exactly this node in the page source.
+         * @return String This returns the XPath, e.g. "/hierarchy/android.widget.FrameLayout[1]/android.widget.TextView[2]".
+         */
+        public String getXPath() {
+            StringBuilder path = new StringBuilder();
+            for (Node current = element; current instanceof Element; current = current.getParentNode()) {
+                int position = 1;
+                for (Node sibling = current.getPreviousSibling(); sibling != null; sibling = sibling.getPreviousSibling()) {
+                    if (sibling instanceof Element && sibling.getNodeName().equals(current.getNodeName())) {
+                        position++;
+                    }
+                }
+                path.insert(0, "/" + current.getNodeName() + "[" + position + "]");
+            }
+            return path.toString();
+        }
+
+        /**
+         * This method is used to get a locator for this node, the cheapest one that is unique on the snapshot.
+         * Accessibility id comes first, then resource-id, then the absolute XPath.
+         * @return By This returns the locator.
+         */
+        public By toLocator() {
+            String accessibilityId = getAttribute(android ? "content-desc" : "name");
+            if (accessibilityId != null && !accessibilityId.isEmpty() && byAccessibilityId(accessibilityId).size() == 1) {
+                return AppiumBy.accessibilityId(accessibilityId);
+            }
+            String resourceId = android ? getAttribute("resource-id") : null;
+            if (resourceId != null && !resourceId.isEmpty() && byResourceId(resourceId).size() == 1) {
+                return AppiumBy.id(resourceId);
+            }
+            return By.xpath(getXPath());
+        }
+
+        /**
+         * This method is used to look the node up on the device, for actions that need a driver element (e.g. sendKeys).
+         * @return WebElement This returns the driver element found with {@link #toLocator()}.
+         */
+        public WebElement toElement() {
+            return BasePage.getDriver().findElement(toLocator());
+        }
+
+        @Override
+        public String toString() {
+            return getTagName() + " " + toLocator();
+        }
+    }
+}
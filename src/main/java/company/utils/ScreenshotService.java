@@ -0,0 +1,165 @@
+package company.utils;
+
+import company.base.BasePage;
+import org.openqa.selenium.OutputType;
+import org.openqa.selenium.TakesScreenshot;
+
+import javax.imageio.ImageIO;
+import java.awt.Graphics2D;
+import java.awt.RenderingHints;
+import java.awt.image.BufferedImage;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * ScreenshotService class takes one screenshot per failure and stores it as a file next to the report, which links it instead of
+ * embedding it as base64. On Android the PNG is streamed from 'screencap -p' over {@link AdbClient} straight to disk, without
+ * the base64 round-trip through Appium; other platforms, or devices the local adb server does not know, use the driver.
+ * The file is downscaled to 'screenshotMaxWidth' (config.properties) on a background thread and replaced atomically,
+ * so the link is valid at any time and the failing test does not wait for the image work.
+ */
+public class ScreenshotService {
+
+    private static final String SCREENSHOT_FOLDER = "screenshots";
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G'};
+    private static final Set<Future<?>> pending = ConcurrentHashMap.newKeySet();
+    private static final ExecutorService encoder = Executors.newSingleThreadExecutor(r -> {
+        Thread t = new Thread(r, "screenshot-encoder");
+        t.setDaemon(true);
+        return t;
+    });
+
+    static {
+        if (System.getProperty("java.awt.headless") == null)
+            System.setProperty("java.awt.headless", "true");
+    }
+
+    private ScreenshotService() {
+    }
+
+    /**
+     * This method is used to take a screenshot of the current device into the screenshot folder of the report.
+     * @param name This is the name of the screenshot, e.g. the test method.
+     * @return String This returns the path of the file relative to the report folder, or null if no screenshot could be taken.
+     */
+    public static String capture(String name) {
+        long start = System.currentTimeMillis();
+        Path folder = Paths.get(System.getProperty("user.dir"), "reports", SCREENSHOT_FOLDER);
+        String fileName = name.replaceAll("[^\\w.-]", "_") + "_" + start + ".png";
+        Path file = folder.resolve(fileName);
+        String strategy = null;
+        try {
+            Files.createDirectories(folder);
+            if ("android".equalsIgnoreCase(BasePage.getPlatform()) && BasePage.getUdid() != null && captureWithAdb(BasePage.getUdid(), file)) {
+                strategy = "adb screencap";
+            } else if (captureWithDriver(file)) {
+                strategy = "driver";
+            }
+        } catch (IOException e) {
+            LoggerUtilities.error("Error in screenshot : " + e.getMessage());
+        }
+        if (strategy == null) {
+            return null;
+        }
+        LoggerUtilities.info("Screenshot " + fileName + " taken with " + strategy + " in " + (System.currentTimeMillis() - start) + " ms.");
+        pending.add(encoder.submit(() -> downscale(file)));
+        pending.removeIf(Future::isDone);
+        return SCREENSHOT_FOLDER + "/" + fileName;
+    }
+
+    /**
+     * This method is used to wait until the screenshots taken so far are downscaled, e.g. before the report is flushed.
+     * @param timeoutSeconds This is the maximum time to wait.
+     */
+    public static void awaitPending(long timeoutSeconds) {
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(timeoutSeconds);
+        for (Future<?> task : pending) {
+            try {
+                task.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (Exception e) {
+                LoggerUtilities.info("Screenshot downscale not finished : " + e.getClass().getSimpleName());
+            }
+        }
+        pending.removeIf(Future::isDone);
+    }
+
+    private static boolean captureWithAdb(String udid, Path file) {
+        Path temp = file.resolveSibling(file.getFileName() + ".part");
+        try (InputStream in = AdbClient.getInstance().execOut(udid, "screencap -p")) {
+            Files.copy(in, temp, StandardCopyOption.REPLACE_EXISTING);
+            if (!isPng(temp)) {
+                LoggerUtilities.info("adb screencap returned no PNG for " + udid + ", using the driver.");
+                Files.deleteIfExists(temp);
+                return false;
+            }
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            return true;
+        } catch (IOException e) {
+            LoggerUtilities.info("adb screencap failed for " + udid + " : " + e.getMessage() + ", using the driver.");
+            try {
+                Files.deleteIfExists(temp);
+            } catch (IOException ignored) {
+            }
+            return false;
+        }
+    }
+
+    private static boolean captureWithDriver(Path file) {
+        try {
+            byte[] png = ((TakesScreenshot) BasePage.getDriver()).getScreenshotAs(OutputType.BYTES);
+            if (png == null || png.length == 0)
+                throw new RuntimeException("Error in screenshot.");
+            Files.write(file, png);
+            return true;
+        } catch (Exception e) {
+            LoggerUtilities.error("Error in screenshot : " + e.getMessage());
+            return false;
+        }
+    }
+
+    private static boolean isPng(Path file) throws IOException {
+        try (InputStream in = Files.newInputStream(file)) {
+            byte[] header = in.readNBytes(PNG_SIGNATURE.length);
+            for (int i = 0; i < PNG_SIGNATURE.length; i++) {
+                if (header.length <= i || header[i] != PNG_SIGNATURE[i])
+                    return false;
+            }
+            return true;
+        }
+    }
+
+    //writes the smaller image next to the original and swaps it in, so a reader never sees a half written file.
+    private static void downscale(Path file) {
+        try {
+            int maxWidth = Integer.parseInt(getScreenshotMaxWidth());
+            BufferedImage original = ImageIO.read(file.toFile());
+            if (original == null || maxWidth <= 0 || original.getWidth() <= maxWidth)
+                return;
+            int height = (int) Math.round((double) original.getHeight() * maxWidth / original.getWidth());
+            BufferedImage scaled = new BufferedImage(maxWidth, height, BufferedImage.TYPE_INT_RGB);
+            Graphics2D graphics = scaled.createGraphics();
+            graphics.setRenderingHint(RenderingHints.KEY_INTERPOLATION, RenderingHints.VALUE_INTERPOLATION_BILINEAR);
+            graphics.drawImage(original, 0, 0, maxWidth, height, null);
+            graphics.dispose();
+            Path temp = file.resolveSibling(file.getFileName() + ".part");
+            ImageIO.write(scaled, "png", temp.toFile());
+            Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (Exception e) {
+            LoggerUtilities.error("Error in downscaling screenshot " + file.getFileName() + " : " + e.getMessage());
+        }
+    }
+
+    private static String getScreenshotMaxWidth() {
+        return (System.getProperty("screenshotMaxWidth") != null && System.getProperty("screenshotMaxWidth").trim().length() > 0) ? System.getProperty("screenshotMaxWidth").trim() : ReadProperties.getValue("screenshotMaxWidth");
+    }
+}
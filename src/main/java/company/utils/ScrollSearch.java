@@ -0,0 +1,196 @@
+package company.utils;
+
+import company.base.BasePage;
+import io.appium.java_client.AppiumBy;
+import org.openqa.selenium.By;
+import org.openqa.selenium.NoSuchElementException;
+import org.openqa.selenium.WebDriverException;
+import org.openqa.selenium.WebElement;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * ScrollSearch class scrolls a locator into view with the search running on the device whenever the locator allows it.
+ * On Android the locator is turned into a UiSelector and searched with UiScrollable.scrollIntoView, on iOS accessibility ids
+ * and predicates are searched with 'mobile: scroll'; either way the whole search is one round-trip.
+ * Locators that cannot be expressed that way (complex XPath) fall back to {@link AdaptiveScroller}, and locators a snapshot cannot
+ * evaluate either (class chains) to the swipe loop with end-of-page detection.
+ * The chosen strategy and the search time are logged for every search.
+ */
+public class ScrollSearch {
+
+    private static final Pattern SIMPLE_XPATH = Pattern.compile("^//([\\w.]+|\\*)\\[@(text|content-desc|resource-id)=(['\"])(.*?)\\3]$");
+
+    private ScrollSearch() {
+    }
+
+    /**
+     * This method is used to scroll until an element matching the locator is displayed.
+     * @param locator This is the locator of the element, e.g. AppiumBy.accessibilityId("test-Price").
+     * @return WebElement This returns the element once it is displayed.
+     * @throws NoSuchElementException If the element was not found before the end of the list.
+     */
+    public static WebElement scrollIntoView(By locator) {
+        long start = System.currentTimeMillis();
+        String strategy = "swipe";
+        WebElement element = null;
+        if ("android".equalsIgnoreCase(BasePage.getPlatform())) {
+            String selector = toUiSelector(locator);
+            if (selector != null) {
+                strategy = "UiScrollable";
+                element = scrollWithUiScrollable(selector);
+            }
+        } else {
+            Map<String, Object> params = toIOSScrollParams(locator);
+            if (params != null) {
+                strategy = "mobile: scroll";
+                element = scrollWithXCUITest(params, locator);
+            }
+        }
+        if (element == null) {
+            String fallback = ScreenSnapshot.supports(locator) ? "adaptive" : "swipe";
+            strategy = strategy.equals("swipe") ? fallback : strategy + " then " + fallback;
+            element = fallback.equals("adaptive") ? scrollAdaptive(locator) : scrollWithSwipes(locator);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        if (element == null) {
+            LoggerUtilities.info("Scroll search for " + locator + " failed (" + strategy + ") in " + elapsed + " ms.");
+            throw new NoSuchElementException("Element not found after scrolling : " + locator);
+        }
+        LoggerUtilities.info("Scroll search for " + locator + " found (" + strategy + ") in " + elapsed + " ms.");
+        return element;
+    }
+
+    /**
+     * This method is used to scroll until an element matching the locator is displayed and click it.
+     * @param locator This is the locator of the element.
+     * @param message This is the message to log.
+     * @throws NoSuchElementException If the element was not found before the end of the list.
+     */
+    public static void scrollAndClick(By locator, String message) {
+        scrollIntoView(locator).click();
+        LoggerUtilities.infoLoggerInFileAndReport("Scroll and click success : " + message);
+    }
+
+    /**
+     * This method is used to translate a locator into a UiSelector expression.
+     * @param locator This is the locator.
+     * @return String This returns the UiSelector, or null if the locator cannot be expressed as one.
+     */
+    static String toUiSelector(By locator) {
+        if (!(locator instanceof By.Remotable)) {
+            return null;
+        }
+        By.Remotable.Parameters parameters = ((By.Remotable) locator).getRemoteParameters();
+        String value = String.valueOf(parameters.value());
+        switch (parameters.using()) {
+            case "accessibility id":
+                return "new UiSelector().description(" + quote(value) + ")";
+            case "id":
+                return value.contains(":id/") ? "new UiSelector().resourceId(" + quote(value) + ")"
+                        : "new UiSelector().resourceIdMatches(" + quote(".*:id/" + Pattern.quote(value)) + ")";
+            case "class name":
+                return "new UiSelector().className(" + quote(value) + ")";
+            case "-android uiautomator":
+                return value.trim().startsWith("new UiSelector()") ? value.trim() : null;
+            case "xpath":
+                Matcher matcher = SIMPLE_XPATH.matcher(value.trim());
+                if (!matcher.matches()) {
+                    return null;
+                }
+                String selector = "new UiSelector()";
+                if (!matcher.group(1).equals("*")) {
+                    selector += ".className(" + quote(matcher.group(1)) + ")";
+                }
+                switch (matcher.group(2)) {
+                    case "text":
+                        return selector + ".text(" + quote(matcher.group(4)) + ")";
+                    case "content-desc":
+                        return selector + ".description(" + quote(matcher.group(4)) + ")";
+                    default:
+                        return selector + ".resourceId(" + quote(matcher.group(4)) + ")";
+                }
+            default:
+                return null;
+        }
+    }
+
+    private static Map<String, Object> toIOSScrollParams(By locator) {
+        if (!(locator instanceof By.Remotable)) {
+            return null;
+        }
+        By.Remotable.Parameters parameters = ((By.Remotable) locator).getRemoteParameters();
+        Map<String, Object> params = new HashMap<>();
+        switch (parameters.using()) {
+            case "accessibility id":
+            case "id":
+            case "name":
+                params.put("name", String.valueOf(parameters.value()));
+                return params;
+            case "-ios predicate string":
+                params.put("predicateString", String.valueOf(parameters.value()));
+                return params;
+            default:
+                return null;
+        }
+    }
+
+    private static WebElement scrollWithUiScrollable(String selector) {
+        String maxScrollSwipes = getMaxScrollSwipes();
+        By scrollable = AppiumBy.androidUIAutomator("new UiScrollable(new UiSelector().scrollable(true)).setMaxSearchSwipes(" + maxScrollSwipes + ")"
+                + ".scrollIntoView(" + selector + ")");
+        //one lookup: a waiting lookup would run the whole on-device search again until the wait is over.
+        try {
+            return BasePage.getDriver().findElement(scrollable);
+        } catch (WebDriverException e) {
+            LoggerUtilities.info("UiScrollable did not find " + selector + " : " + e.getClass().getSimpleName());
+            return null;
+        }
+    }
+
+    private static WebElement scrollWithXCUITest(Map<String, Object> params, By locator) {
+        try {
+            BasePage.getDriver().executeScript("mobile: scroll", params);
+            return BasePage.findIfPresent(locator);
+        } catch (WebDriverException e) {
+            LoggerUtilities.info("mobile: scroll did not find " + params + " : " + e.getClass().getSimpleName());
+            return null;
+        }
+    }
+
+    private static WebElement scrollAdaptive(By locator) {
+        try {
+            return AdaptiveScroller.scrollTo(locator, CommonGestures.ScrollDirection.DOWN);
+        } catch (NoSuchElementException e) {
+            return null;
+        }
+    }
+
+    private static WebElement scrollWithSwipes(By locator) {
+        int maxSwipes = Integer.parseInt(getMaxScrollSwipes());
+        return BasePage.probe(() -> {
+            PageFingerprint pageState = new PageFingerprint();
+            int swipes = 0;
+            while (swipes <= maxSwipes && pageState.hasChanged()) {
+                WebElement element = BasePage.findIfPresent(locator);
+                if (element != null) {
+                    return element;
+                }
+                CommonGestures.swipeDirection("down", CommonGestures.SCROLL_RATIO);
+                swipes++;
+            }
+            return null;
+        });
+    }
+
+    private static String quote(String value) {
+        return "\"" + value.replace("\\", "\\\\").replace("\"", "\\\"") + "\"";
+    }
+
+    static String getMaxScrollSwipes() {
+        return (System.getProperty("maxScrollSwipes") != null && System.getProperty("maxScrollSwipes").trim().length() > 0) ? System.getProperty("maxScrollSwipes").trim() : ReadProperties.getValue("maxScrollSwipes");
+    }
+}
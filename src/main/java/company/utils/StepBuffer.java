@@ -0,0 +1,148 @@
+package company.utils;
+
+import java.time.Instant;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+
+/**
+ * StepBuffer class keeps the steps of the running test in a bounded ring per thread instead of writing each of them to the log
+ * file and the extent report. A passing test writes one summary line; a failing or skipped test writes the whole buffer,
+ * each step with the time it happened, followed by the failure. Errors write the buffered steps before themselves so the
+ * order is kept. The ring is allocated once per thread and reused, when it is full the oldest steps are dropped and counted.
+ * The size is read from 'stepBufferSize' in config.properties, 0 writes every step immediately as before.
+ */
+public class StepBuffer {
+
+    private static final DateTimeFormatter TIME = DateTimeFormatter.ofPattern("HH:mm:ss.SSS");
+    private static final ThreadLocal<StepBuffer> buffers = new ThreadLocal<>();
+    private static volatile Integer capacity;
+
+    private final long[] times;
+    private final int[] steps;
+    private final Class<?>[] callers;
+    private final String[] messages;
+    private String testName;
+    private long started;
+    private int head;
+    private int size;
+    private int total;
+
+    private StepBuffer(int capacity) {
+        times = new long[capacity];
+        steps = new int[capacity];
+        callers = new Class<?>[capacity];
+        messages = new String[capacity];
+    }
+
+    /**
+     * This method is used to start buffering the steps of a test on the current thread.
+     * @param testName This is the name of the test.
+     */
+    public static void start(String testName) {
+        if (getCapacity() <= 0) {
+            return;
+        }
+        StepBuffer buffer = buffers.get();
+        if (buffer == null) {
+            buffer = new StepBuffer(getCapacity());
+            buffers.set(buffer);
+        }
+        buffer.clear();
+        buffer.testName = testName;
+        buffer.started = System.currentTimeMillis();
+    }
+
+    /**
+     * This method is used to keep a step of the running test in the buffer.
+     * @param caller This is the class that logged the step.
+     * @param step This is the step index of the thread, see {@link TestLogContext}.
+     * @param msg This is the step message.
+     * @return boolean This returns true if the step was buffered, false if no test is running and the step must be written now.
+     */
+    static boolean record(Class<?> caller, int step, String msg) {
+        StepBuffer buffer = buffers.get();
+        if (buffer == null || buffer.testName == null) {
+            return false;
+        }
+        int index = (buffer.head + buffer.size) % buffer.messages.length;
+        if (buffer.size == buffer.messages.length) {
+            buffer.head = (buffer.head + 1) % buffer.messages.length;
+        } else {
+            buffer.size++;
+        }
+        buffer.times[index] = System.currentTimeMillis();
+        buffer.steps[index] = step;
+        buffer.callers[index] = caller;
+        buffer.messages[index] = msg;
+        buffer.total++;
+        return true;
+    }
+
+    /**
+     * This method is used to write the buffered steps of the running test to the log file and the report, and empty the buffer.
+     * The test keeps buffering its next steps.
+     */
+    static void flush() {
+        StepBuffer buffer = buffers.get();
+        if (buffer == null || buffer.testName == null || buffer.size == 0) {
+            return;
+        }
+        int dropped = buffer.total - buffer.size;
+        if (dropped > 0) {
+            TestLogContext.setStep(buffer.steps[buffer.head]);
+            LoggerUtilities.writeStep(StepBuffer.class, "... " + dropped + " earlier steps of " + buffer.testName + " not kept (stepBufferSize=" + buffer.messages.length + ")");
+        }
+        for (int i = 0; i < buffer.size; i++) {
+            int index = (buffer.head + i) % buffer.messages.length;
+            String time = LocalTime.ofInstant(Instant.ofEpochMilli(buffer.times[index]), ZoneId.systemDefault()).format(TIME);
+            TestLogContext.setStep(buffer.steps[index]);
+            LoggerUtilities.writeStep(buffer.callers[index], "[" + time + "] " + buffer.messages[index]);
+        }
+        TestLogContext.setStep(TestLogContext.currentStep());
+        String testName = buffer.testName;
+        long started = buffer.started;
+        buffer.clear();
+        buffer.testName = testName;
+        buffer.started = started;
+    }
+
+    /**
+     * This method is used to end the running test. A passed test writes only a summary, otherwise all buffered steps are written.
+     * @param passed This is true if the test passed.
+     */
+    public static void finish(boolean passed) {
+        StepBuffer buffer = buffers.get();
+        if (buffer == null || buffer.testName == null) {
+            return;
+        }
+        if (passed) {
+            LoggerUtilities.writeStep(StepBuffer.class, buffer.testName + " : " + buffer.total + " steps in "
+                    + (System.currentTimeMillis() - buffer.started) + " ms, step log kept only for failures.");
+        } else {
+            flush();
+        }
+        buffer.clear();
+    }
+
+    private void clear() {
+        //drop the references so the messages of a finished test can be collected.
+        for (int i = 0; i < size; i++) {
+            int index = (head + i) % messages.length;
+            messages[index] = null;
+            callers[index] = null;
+        }
+        testName = null;
+        head = 0;
+        size = 0;
+        total = 0;
+    }
+
+    private static int getCapacity() {
+        if (capacity == null) {
+            String value = (System.getProperty("stepBufferSize") != null && System.getProperty("stepBufferSize").trim().length() > 0) ? System.getProperty("stepBufferSize").trim() : ReadProperties.getValue("stepBufferSize");
+            capacity = Integer.parseInt(value);
+        }
+        return capacity;
+    }
+}
@@ -0,0 +1,123 @@
+package company.utils;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Properties;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * TestDurationHistory class records the wall time of every test class and keeps it between runs
+ * in a small properties file (className=milliseconds). New measurements are blended with the
+ * previous value so that one slow run does not reorder the whole suite.
+ */
+public class TestDurationHistory {
+
+    private static final double SMOOTHING = 0.5;
+    private static final Map<String, Long> startedAt = new ConcurrentHashMap<>();
+    private static final Map<String, Long> measured = new ConcurrentHashMap<>();
+    private static final ThreadLocal<String> currentClass = new ThreadLocal<>();
+
+    private TestDurationHistory() {
+    }
+
+    /**
+     * This method is used to get the location of the history file.
+     * @return Path This returns the configured history file path.
+     */
+    public static Path getHistoryFile() {
+        String durationHistoryFile = (System.getProperty("durationHistoryFile") != null && System.getProperty("durationHistoryFile").trim().length() > 0) ? System.getProperty("durationHistoryFile").trim() : ReadProperties.getValue("durationHistoryFile");
+        return Paths.get(durationHistoryFile);
+    }
+
+    /**
+     * This method is used to read the recorded class durations.
+     * @return Map This returns fully qualified class name to duration in milliseconds, empty if there is no history yet.
+     */
+    public static Map<String, Long> load() {
+        Map<String, Long> history = new HashMap<>();
+        Path historyFile = getHistoryFile();
+        if (!Files.exists(historyFile)) {
+            return history;
+        }
+        Properties properties = new Properties();
+        try (InputStream in = Files.newInputStream(historyFile)) {
+            properties.load(in);
+            properties.forEach((key, value) -> history.put(String.valueOf(key), Long.parseLong(String.valueOf(value).trim())));
+        } catch (IOException | NumberFormatException e) {
+            LoggerUtilities.error("Error in reading duration history " + historyFile + " : " + e.getMessage());
+        }
+        return history;
+    }
+
+    /**
+     * This method is used to mark the start of a test class.
+     * @param className This is the fully qualified class name.
+     */
+    public static void classStarted(String className) {
+        currentClass.set(className);
+        startedAt.put(className, System.currentTimeMillis());
+    }
+
+    /**
+     * This method is used to restart the clock of the class running on the current thread,
+     * so that time spent waiting for a device is not counted as class duration.
+     */
+    public static void restartClockOfCurrentClass() {
+        String className = currentClass.get();
+        if (className != null && startedAt.containsKey(className)) {
+            startedAt.put(className, System.currentTimeMillis());
+        }
+    }
+
+    /**
+     * This method is used to mark the end of a test class and record its wall time.
+     * @param className This is the fully qualified class name.
+     */
+    public static void classFinished(String className) {
+        currentClass.remove();
+        Long start = startedAt.remove(className);
+        if (start != null) {
+            measured.put(className, System.currentTimeMillis() - start);
+        }
+    }
+
+    /**
+     * This method is used to get the durations measured in this run.
+     * @return Map This returns fully qualified class name to duration in milliseconds.
+     */
+    public static Map<String, Long> getMeasured() {
+        return new HashMap<>(measured);
+    }
+
+    /**
+     * This method is used to merge this run's measurements into the history file.
+     */
+    public static synchronized void save() {
+        if (measured.isEmpty()) {
+            return;
+        }
+        Map<String, Long> history = load();
+        measured.forEach((className, millis) -> history.merge(className, millis,
+                (previous, current) -> Math.round(previous * (1 - SMOOTHING) + current * SMOOTHING)));
+        Properties properties = new Properties();
+        history.forEach((className, millis) -> properties.setProperty(className, String.valueOf(millis)));
+        Path historyFile = getHistoryFile();
+        try {
+            if (historyFile.getParent() != null) {
+                Files.createDirectories(historyFile.getParent());
+            }
+            try (OutputStream out = Files.newOutputStream(historyFile)) {
+                properties.store(out, "Test class wall time in milliseconds");
+            }
+            LoggerUtilities.info("Duration history saved : " + historyFile.toAbsolutePath());
+        } catch (IOException e) {
+            LoggerUtilities.error("Error in saving duration history " + historyFile + " : " + e.getMessage());
+        }
+    }
+}
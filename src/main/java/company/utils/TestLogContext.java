@@ -0,0 +1,100 @@
+package company.utils;
+
+import company.base.BasePage;
+import org.apache.logging.log4j.LogManager;
+import org.apache.logging.log4j.ThreadContext;
+import org.apache.logging.log4j.core.LoggerContext;
+import org.testng.IRetryAnalyzer;
+import org.testng.ITestResult;
+
+import java.util.Arrays;
+
+/**
+ * TestLogContext class tags every log event with the test it belongs to, so the JSON-lines log of a device can be sliced per test.
+ * The suite, class, method, device udid and retry attempt are put in the log4j ThreadContext when a test starts, and every event
+ * logged through {@link LoggerUtilities} gets the next step index of the thread (steps kept by {@link StepBuffer} keep the index
+ * they were logged with). With 'logFormat=json' in config.properties the per-device log files are written as JSON lines
+ * (application.jsonl) carrying these tags, read them with {@link LogQuery}. With the default 'text' the tags are not set.
+ */
+public class TestLogContext {
+
+    private static final String[] KEYS = {"suite", "class", "method", "udid", "attempt", "step"};
+    private static final ThreadLocal<int[]> steps = ThreadLocal.withInitial(() -> new int[1]);
+    private static volatile boolean json = "json".equalsIgnoreCase(System.getProperty("logFormat"));
+
+    private TestLogContext() {
+    }
+
+    /**
+     * This method is used to switch the log files to JSON lines when config.properties asks for it.
+     * log4j2.xml picks the layout from the 'logFormat' system property, so it is set and log4j is reconfigured if needed.
+     */
+    public static void configure() {
+        String logFormat = (System.getProperty("logFormat") != null && System.getProperty("logFormat").trim().length() > 0) ? System.getProperty("logFormat").trim() : ReadProperties.getValue("logFormat");
+        json = "json".equalsIgnoreCase(logFormat);
+        if (json && !"json".equals(System.getProperty("logFormat"))) {
+            System.setProperty("logFormat", "json");
+            ((LoggerContext) LogManager.getContext(false)).reconfigure();
+        }
+        LoggerUtilities.info("Log format : " + (json ? "json" : "text"));
+    }
+
+    /**
+     * This method is used to tag the events of the current thread with the test that starts.
+     * @param result This is the result of the starting test.
+     */
+    public static void begin(ITestResult result) {
+        steps.get()[0] = 0;
+        if (!json) {
+            return;
+        }
+        ThreadContext.put("suite", result.getTestContext().getSuite().getName());
+        ThreadContext.put("class", result.getTestClass().getRealClass().getName());
+        ThreadContext.put("method", result.getMethod().getMethodName());
+        ThreadContext.put("udid", String.valueOf(BasePage.getUdid()));
+        ThreadContext.put("attempt", String.valueOf(getAttempt(result)));
+    }
+
+    /**
+     * This method is used to remove the test tags from the current thread once the test ended.
+     * The routing key of the device stays.
+     */
+    public static void end() {
+        if (json) {
+            ThreadContext.removeAll(Arrays.asList(KEYS));
+        }
+    }
+
+    /**
+     * This method is used to take the next step index of the current thread and tag the events with it.
+     * @return int This returns the step index, counted from 1 for every test.
+     */
+    static int nextStep() {
+        int step = ++steps.get()[0];
+        setStep(step);
+        return step;
+    }
+
+    /**
+     * This method is used to tag the next events with a given step index, e.g. for a step written later from the buffer.
+     * @param step This is the step index.
+     */
+    static void setStep(int step) {
+        if (json) {
+            ThreadContext.put("step", String.valueOf(step));
+        }
+    }
+
+    /**
+     * This method is used to get the step index last taken on the current thread.
+     * @return int This returns the step index.
+     */
+    static int currentStep() {
+        return steps.get()[0];
+    }
+
+    private static int getAttempt(ITestResult result) {
+        IRetryAnalyzer analyzer = result.getMethod().getRetryAnalyzer(result);
+        return analyzer instanceof RetryAnalyzer ? ((RetryAnalyzer) analyzer).getRetryCount() + 1 : 1;
+    }
+}
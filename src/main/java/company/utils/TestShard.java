@@ -0,0 +1,127 @@
+package company.utils;
+
+import org.testng.IAlterSuiteListener;
+import org.testng.IMethodInstance;
+import org.testng.IMethodInterceptor;
+import org.testng.ITestContext;
+import org.testng.xml.XmlSuite;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TestShard class splits the test classes of the suite between several CI runners, e.g. -Dshard=2/5 runs the second of five slices.
+ * Classes are spread by their recorded duration from {@link TestDurationHistory}: longest first, each to the shard with the least
+ * expected time, so every shard takes about the same time. Without history the classes are dealt round-robin in name order.
+ * The split depends only on the class names and the history file, which CI restores from a shared cache before the run, so every
+ * runner computes the same assignment and each class runs on exactly one shard. Without -Dshard the whole suite runs as before.
+ */
+public class TestShard implements IAlterSuiteListener, IMethodInterceptor {
+
+    /**
+     * This method is used to read the shard of this run.
+     * @return int[] This returns {index, total} with index starting at 1, or null if sharding is off.
+     */
+    public static int[] getShard() {
+        String shard = (System.getProperty("shard") != null && System.getProperty("shard").trim().length() > 0) ? System.getProperty("shard").trim() : ReadProperties.getValue("shard");
+        if (shard.isEmpty()) {
+            return null;
+        }
+        String[] parts = shard.split("/");
+        try {
+            int index = Integer.parseInt(parts[0].trim());
+            int total = Integer.parseInt(parts[1].trim());
+            if (parts.length == 2 && total > 0 && index >= 1 && index <= total) {
+                return new int[]{index, total};
+            }
+        } catch (NumberFormatException | ArrayIndexOutOfBoundsException ignored) {
+        }
+        throw new IllegalArgumentException("Invalid shard '" + shard + "', expected index/total like 2/5");
+    }
+
+    /**
+     * This method is used to get the shard label used in report names.
+     * @return String This returns e.g. "shard2of5", or an empty string if sharding is off.
+     */
+    public static String getShardLabel() {
+        int[] shard = getShard();
+        return shard == null ? "" : "shard" + shard[0] + "of" + shard[1];
+    }
+
+    @Override
+    public void alter(List<XmlSuite> suites) {
+        ReadProperties.readConfigFile();
+        int[] shard = getShard();
+        if (shard == null) {
+            return;
+        }
+        for (XmlSuite suite : suites) {
+            suite.setName(suite.getName() + " [shard " + shard[0] + "/" + shard[1] + "]");
+        }
+    }
+
+    @Override
+    public List<IMethodInstance> intercept(List<IMethodInstance> methods, ITestContext context) {
+        int[] shard = getShard();
+        if (shard == null) {
+            return methods;
+        }
+        Map<String, List<IMethodInstance>> methodsByClass = new LinkedHashMap<>();
+        for (IMethodInstance method : methods) {
+            methodsByClass.computeIfAbsent(method.getMethod().getRealClass().getName(), k -> new ArrayList<>()).add(method);
+        }
+        Map<String, Integer> assignment = assign(methodsByClass.keySet(), TestDurationHistory.load(), shard[1]);
+
+        List<IMethodInstance> selected = new ArrayList<>();
+        for (Map.Entry<String, List<IMethodInstance>> entry : methodsByClass.entrySet()) {
+            if (assignment.get(entry.getKey()) == shard[0]) {
+                selected.addAll(entry.getValue());
+                LoggerUtilities.info("Shard " + shard[0] + "/" + shard[1] + " runs " + entry.getKey());
+            }
+        }
+        LoggerUtilities.info("Shard " + shard[0] + "/" + shard[1] + " selected " + selected.size() + " of " + methods.size() + " test methods.");
+        return selected;
+    }
+
+    /**
+     * This method is used to spread classes between shards: longest class first, each to the shard with the least expected time.
+     * Classes are visited in a fixed order (duration, then name), so the result does not depend on discovery order.
+     * Classes missing from the history count as the average recorded class; with no history at all they are dealt round-robin by name.
+     * @param classNames This is the set of fully qualified class names to split.
+     * @param history This is the recorded class durations in milliseconds, may be empty.
+     * @param total This is the number of shards.
+     * @return Map This returns class name to shard index (starting at 1).
+     */
+    static Map<String, Integer> assign(Iterable<String> classNames, Map<String, Long> history, int total) {
+        List<String> classOrder = new ArrayList<>();
+        classNames.forEach(classOrder::add);
+        Map<String, Integer> assignment = new LinkedHashMap<>();
+        if (history.isEmpty()) {
+            classOrder.sort(null);
+            for (int i = 0; i < classOrder.size(); i++) {
+                assignment.put(classOrder.get(i), i % total + 1);
+            }
+            return assignment;
+        }
+        long averageMillis = Math.max(1, Math.round(history.values().stream().mapToLong(Long::longValue).average().orElse(1)));
+        classOrder.sort((a, b) -> {
+            int byDuration = Long.compare(history.getOrDefault(b, averageMillis), history.getOrDefault(a, averageMillis));
+            return byDuration != 0 ? byDuration : a.compareTo(b);
+        });
+
+        long[] load = new long[total];
+        for (String className : classOrder) {
+            int lightest = 0;
+            for (int i = 1; i < total; i++) {
+                if (load[i] < load[lightest]) {
+                    lightest = i;
+                }
+            }
+            load[lightest] += history.getOrDefault(className, averageMillis);
+            assignment.put(className, lightest + 1);
+        }
+        return assignment;
+    }
+}
@@ -0,0 +1,240 @@
+package company.utils;
+
+import company.base.BasePage;
+import org.openqa.selenium.NotFoundException;
+import org.openqa.selenium.StaleElementReferenceException;
+import org.openqa.selenium.TimeoutException;
+import org.openqa.selenium.WebDriver;
+import org.openqa.selenium.WebElement;
+
+import java.time.Duration;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * WaitEngine class runs the explicit waits of the page objects with one shared configuration.
+ * Conditions are polled with a growing interval (fast first polls, slower later) instead of a fixed 500 ms.
+ * For every wait key (condition and locator, see {@link #keyOf(String, WebElement)}) the time until the condition was met is
+ * recorded; once enough samples exist the key gets a learned timeout of a few times the slowest observed time, never below
+ * {@link #MIN_LEARNED_TIMEOUT_MILLIS} and never above the configured timeout, so a wait for an element that is not coming gives up
+ * early. A timeout under a learned timeout drops what was learned for that key, the next wait uses the configured timeout again.
+ * Waits given a fixed timeout keep it. Element lookups in a condition do not wait (see {@link BasePage#withoutLookupWait(java.util.function.Supplier)}), so the timeout is the only limit.
+ */
+public class WaitEngine {
+
+    private static final int MIN_SAMPLES = 5;
+    private static final int LEARNED_TIMEOUT_FACTOR = 3;
+    public static final long MIN_LEARNED_TIMEOUT_MILLIS = 3000;
+    private static final int MAX_KEYS = 2000;
+    //one step of the locator chain a found element prints, e.g. "[[AndroidDriver: ... (session)] -> id: login]".
+    private static final Pattern LOCATOR_STEP = Pattern.compile("-> ([^\\[\\]]+: [^\\]]*)");
+    private static WaitEngine instance;
+
+    private final Duration defaultTimeout;
+    private final long pollStartMillis;
+    private final long pollMaxMillis;
+    private final boolean learnTimeouts;
+    private final Map<String, WaitStats> statsByKey = new ConcurrentHashMap<>();
+    private final AtomicInteger waits = new AtomicInteger();
+    private final AtomicInteger timeouts = new AtomicInteger();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+    private final AtomicLong savedMillis = new AtomicLong();
+
+    /**
+     * This is the constructor for the WaitEngine class.
+     * @param defaultTimeout This is the timeout used when nothing was learned for a key.
+     * @param pollStartMillis This is the first polling interval.
+     * @param pollMaxMillis This is the largest polling interval, the interval doubles until it gets there.
+     * @param learnTimeouts This indicates whether learned timeouts are used.
+     */
+    public WaitEngine(Duration defaultTimeout, long pollStartMillis, long pollMaxMillis, boolean learnTimeouts) {
+        this.defaultTimeout = defaultTimeout;
+        this.pollStartMillis = pollStartMillis;
+        this.pollMaxMillis = pollMaxMillis;
+        this.learnTimeouts = learnTimeouts;
+    }
+
+    /**
+     * This method is used to get the engine configured from config.properties (wait, waitPollStartMillis, waitPollMaxMillis, learnWaitTimeouts).
+     * @return WaitEngine This returns the shared engine.
+     */
+    public static synchronized WaitEngine getInstance() {
+        if (instance == null) {
+            instance = new WaitEngine(Duration.ofSeconds(Long.parseLong(getSetting("wait"))),
+                    Long.parseLong(getSetting("waitPollStartMillis")),
+                    Long.parseLong(getSetting("waitPollMaxMillis")),
+                    Boolean.parseBoolean(getSetting("learnWaitTimeouts")));
+        }
+        return instance;
+    }
+
+    /**
+     * This method is used to get the configured timeout.
+     * @return Duration This returns the timeout used for keys without a learned timeout.
+     */
+    public Duration getDefaultTimeout() {
+        return defaultTimeout;
+    }
+
+    /**
+     * This method is used to build the wait key of an element from its locator, so every wait on the same locator shares one key.
+     * Page object fields print their locator. Found elements print the driver, its session and the locators they were found with,
+     * only the locators are kept.
+     * @param condition This is the name of the condition, e.g. "visible".
+     * @param element This is the element waited for.
+     * @return String This returns the key, or null if the element does not tell its locator; such waits are not learned.
+     */
+    public static String keyOf(String condition, WebElement element) {
+        String description = String.valueOf(element);
+        if (description.contains("-> unknown locator")) {
+            return null;
+        }
+        Matcher step = LOCATOR_STEP.matcher(description);
+        StringBuilder locators = new StringBuilder();
+        while (step.find()) {
+            locators.append(locators.length() == 0 ? "" : " > ").append(step.group(1).trim());
+        }
+        if (locators.length() > 0) {
+            return condition + ":" + locators;
+        }
+        if (element == null || description.equals(element.getClass().getName() + "@" + Integer.toHexString(element.hashCode()))) {
+            return null;
+        }
+        return condition + ":" + description;
+    }
+
+    /**
+     * This method is used to wait for a condition with the learned timeout of the key, or the configured one.
+     * @param key This identifies the wait, e.g. "visible:" plus the locator, null for a wait that is not learned.
+     * @param condition This is the condition, it is met when it returns neither null nor false.
+     * @param <T> This is the type returned by the condition.
+     * @return T This returns the value of the condition.
+     * @throws TimeoutException If the condition was not met in time.
+     */
+    public <T> T until(String key, Function<? super WebDriver, T> condition) {
+        return until(key, condition, null);
+    }
+
+    /**
+     * This method is used to wait for a condition with a fixed timeout. The outcome is still recorded for the key.
+     * @param key This identifies the wait, e.g. "visible:" plus the locator, null for a wait that is not learned.
+     * @param condition This is the condition, it is met when it returns neither null nor false.
+     * @param timeout This is the timeout, null to use the learned or configured timeout.
+     * @param <T> This is the type returned by the condition.
+     * @return T This returns the value of the condition.
+     * @throws TimeoutException If the condition was not met in time.
+     */
+    public <T> T until(String key, Function<? super WebDriver, T> condition, Duration timeout) {
+        WaitStats stats = getStats(key);
+        long learnedMillis = learnTimeouts && stats != null ? stats.getLearnedTimeoutMillis() : 0;
+        boolean learned = timeout == null && learnedMillis > 0 && learnedMillis < defaultTimeout.toMillis();
+        long timeoutMillis = timeout != null ? timeout.toMillis() : (learned ? learnedMillis : defaultTimeout.toMillis());
+        //lookups in a poll must not wait, otherwise every missed poll blocks for the lookup timeout and the timeout overshoots.
+        String name = key != null ? key : String.valueOf(condition);
+        return BasePage.withoutLookupWait(() -> poll(name, condition, stats, timeoutMillis, learned));
+    }
+
+    private <T> T poll(String key, Function<? super WebDriver, T> condition, WaitStats stats, long timeoutMillis, boolean learned) {
+        WebDriver webDriver = BasePage.getDriver();
+        long start = System.currentTimeMillis();
+        long deadline = start + timeoutMillis;
+        long poll = pollStartMillis;
+        RuntimeException lastError = null;
+        while (true) {
+            try {
+                T value = condition.apply(webDriver);
+                if (value != null && !Boolean.FALSE.equals(value)) {
+                    record(stats, System.currentTimeMillis() - start, true);
+                    return value;
+                }
+            } catch (NotFoundException | StaleElementReferenceException e) {
+                lastError = e;
+            }
+            long remaining = deadline - System.currentTimeMillis();
+            if (remaining <= 0) {
+                break;
+            }
+            try {
+                Thread.sleep(Math.min(poll, remaining));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new TimeoutException("Interrupted while waiting for " + key, e);
+            }
+            poll = Math.min(poll * 2, pollMaxMillis);
+        }
+        long elapsed = System.currentTimeMillis() - start;
+        record(stats, elapsed, false);
+        if (learned) {
+            savedMillis.addAndGet(defaultTimeout.toMillis() - elapsed);
+            stats.reset();
+            LoggerUtilities.info("Learned timeout of " + timeoutMillis + " ms missed for " + key + ", using " + defaultTimeout.toSeconds() + " s again.");
+        }
+        throw new TimeoutException("Expected condition failed: waiting for " + key + " (tried for " + elapsed + " ms)", lastError);
+    }
+
+    /**
+     * This method is used to get the wait metrics for the report.
+     * @return String This returns a one line summary of the waits of the run.
+     */
+    public String getSummary() {
+        long learnedKeys = statsByKey.values().stream().filter(s -> s.getLearnedTimeoutMillis() > 0).count();
+        return "waits=" + waits.get() + ", timeouts=" + timeouts.get() + ", waited=" + totalWaitMillis.get() / 1000
+                + " s, learned keys=" + learnedKeys + ", cut by learned timeouts=" + savedMillis.get() / 1000 + " s";
+    }
+
+    //the keys are locators, a bounded map keeps dynamic locators (e.g. built from test data) from growing it forever.
+    private WaitStats getStats(String key) {
+        if (key == null) {
+            return null;
+        }
+        WaitStats stats = statsByKey.get(key);
+        if (stats == null && statsByKey.size() < MAX_KEYS) {
+            stats = statsByKey.computeIfAbsent(key, k -> new WaitStats());
+        }
+        return stats;
+    }
+
+    private void record(WaitStats stats, long elapsedMillis, boolean met) {
+        waits.incrementAndGet();
+        totalWaitMillis.addAndGet(elapsedMillis);
+        if (met && stats != null) {
+            stats.addSample(elapsedMillis);
+        } else {
+            timeouts.incrementAndGet();
+        }
+    }
+
+    private static String getSetting(String key) {
+        return (System.getProperty(key) != null && System.getProperty(key).trim().length() > 0) ? System.getProperty(key).trim() : ReadProperties.getValue(key);
+    }
+
+    /**
+     * WaitStats class keeps the observed times of one wait key.
+     */
+    private static class WaitStats {
+        private int samples;
+        private long slowestMillis;
+
+        synchronized void addSample(long elapsedMillis) {
+            samples++;
+            slowestMillis = Math.max(slowestMillis, elapsedMillis);
+        }
+
+        synchronized long getLearnedTimeoutMillis() {
+            if (samples < MIN_SAMPLES) {
+                return 0;
+            }
+            return Math.max(MIN_LEARNED_TIMEOUT_MILLIS, slowestMillis * LEARNED_TIMEOUT_FACTOR);
+        }
+
+        synchronized void reset() {
+            samples = 0;
+            slowestMillis = 0;
+        }
+    }
+}
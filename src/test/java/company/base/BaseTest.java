@@ -7,7 +7,9 @@ import org.json.JSONObject;
 import org.testng.Assert;
 import org.testng.ITestResult;
 import org.testng.annotations.*;
+import company.driver.AppInstaller;
 import company.driver.DriverFactory;
+import company.driver.DriverPool;
 import company.pom.login.Login;
 import company.utils.*;
 import org.apache.logging.log4j.ThreadContext;
@@ -27,10 +29,10 @@ public class BaseTest {
     String appPath;
     public String className;
     public JSONObject getJsonData;
-    private static final Object lock = new Object();
     boolean flag = false;
     private boolean beforeClassSetupFailed = false;
     static Map<String, DevicePicker.Emulator> newStartedDevices;
+    private Map.Entry<String, DevicePicker.Emulator> leasedDevice;
 
     private void fireUpEnvVars(Map.Entry<String, DevicePicker.Emulator> entryMap) {
         BasePage.setUdid(entryMap.getValue().udid);
@@ -74,6 +76,10 @@ public class BaseTest {
 
         LoggerUtilities.info("\nSelected target : " + BasePage.getTestExecutionLocation() + "\nSelected platform : " + BasePage.getPlatform() + "\nSelected country : " + BasePage.getCountry() + "\nSelected env : " + BasePage.getEnvName() + "\nSelected ThreadCount : " + BasePage.getThreadCount() + "\n");
 
+        if (platformName.equalsIgnoreCase("android") && !target.equalsIgnoreCase("bs")) {
+            //install the app on every device in parallel as soon as it joins the pool.
+            AppInstaller.setPreInstallApp(getAppPath(platformName));
+        }
         switch (target) {
             case "local": {
                 if (platformName.equalsIgnoreCase("android")) {
@@ -89,7 +95,6 @@ public class BaseTest {
                 if (platformName.equalsIgnoreCase("android")) {
                     //Boot up all available android devices equals to thread count.
                     newStartedDevices = devicePicker.setupAndroidDevices();
-                    BasePage.wait(20);
                 } else {
                     //Boot up all available ios devices equals to thread count.
                     newStartedDevices = devicePicker.setupIOSDevices();
@@ -104,10 +109,25 @@ public class BaseTest {
                 System.exit(0);
             }
         }
+        if (newStartedDevices != null) {
+            for (Map.Entry<String, DevicePicker.Emulator> entry : newStartedDevices.entrySet()) {
+                //devices with a running Appium session belong to someone else.
+                if (!entry.getValue().deviceUsed)
+                    DevicePool.register(entry);
+            }
+        }
+    }
+
+    private String getAppPath(String platformName) {
+        String appName = platformName.equalsIgnoreCase("android") ? ReadProperties.getValue("androidAppName") : ReadProperties.getValue("iosAppName");
+        return System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" + File.separator
+                + "resources" + File.separator + "app" + File.separator + BasePage.getEnvName() + File.separator + BasePage.getCountry() + File.separator + appName;
     }
 
     @AfterSuite(alwaysRun = true)
     public void afterSuite() throws IOException, InterruptedException {
+        DriverPool.shutdown();
+        DeviceLeaseRegistry.getInstance().releaseAll();
         switch (BasePage.getTestExecutionLocation()) {
             case "local": {
                 //no need to close the devices.
@@ -117,6 +137,8 @@ public class BaseTest {
                 for (DevicePicker.Emulator emul : newStartedDevices.values())
                     //Shutdown all the devices.
                     DevicePicker.shutDownDevice(emul.udid);
+                //emulators that were still booting at the timeout are not in newStartedDevices.
+                DevicePicker.shutDownLaunchedEmulators();
                 break;
             }
             case "bs":
@@ -136,12 +158,36 @@ public class BaseTest {
         JSONObject getLoginJson = JsonReader.getNestedJson(testdata, className);
         String user = JsonReader.getNestedString(getLoginJson, "username");
         String password = JsonReader.getNestedString(getLoginJson, "password");
+        String loginStateKey = null;
+        try {
+            loginStateKey = LoginStateCache.isEnabled() ? LoginStateCache.key(appPath, user, password) : null;
+        } catch (RuntimeException e) {
+            LoggerUtilities.error("Login state cache not used : " + e.getMessage());
+        }
         login = new Login();
+        if (loginStateKey != null && restoreLoginState(loginStateKey)) {
+            LoggerUtilities.infoLoggerInFileAndReport(">>> Login restored from cache for Test case : " + method.getName());
+            return;
+        }
         Products products = login.do_login(user, password);
 //        Assert.assertEquals(products.get_headerText(), "PRODUCTS", "Login not successful.");
+        if (loginStateKey != null && products.isHeaderDisplayed())
+            LoginStateCache.capture(BasePage.getUdid(), ReadProperties.getValue("androidPackage"), loginStateKey);
         LoggerUtilities.infoLoggerInFileAndReport(">>> Login completed for Test case : " + method.getName());
     }
 
+    private boolean restoreLoginState(String loginStateKey) {
+        if (!LoginStateCache.hasCapture(BasePage.getUdid(), loginStateKey))
+            return false;
+        boolean restored = LoginStateCache.restore(BasePage.getUdid(), ReadProperties.getValue("androidPackage"), loginStateKey);
+        //restore stops the app, start it again either way.
+        new AppInteractions().activateApp();
+        if (restored && new Products().isHeaderDisplayedInsteadOfLogin())
+            return true;
+        LoginStateCache.invalidate(BasePage.getUdid());
+        return false;
+    }
+
     public void unlockAppUsingPassword(){
         JSONObject getLoginJson = JsonReader.getNestedJson(testdata, className);
         String password = JsonReader.getNestedString(getLoginJson, "password");
@@ -163,19 +209,16 @@ public class BaseTest {
                 case "runner":
                 {
                     if(platformName.equalsIgnoreCase("android") || platformName.equalsIgnoreCase("ios")) {
-                        synchronized (lock) {
-                            LoggerUtilities.info(Thread.currentThread().getName() + " is performing the task.");
-                            BasePage.wait(3);
-                            for (Map.Entry<String, DevicePicker.Emulator> entry : newStartedDevices.entrySet()) {
-                                if (!entry.getValue().deviceUsed) {
-                                    LoggerUtilities.info("Emulator picked : " + entry.getValue().udid);
-                                    fireUpEnvVars(entry);
-                                    entry.getValue().deviceUsed = true;
-                                    break;
-                                }
-                            }
-                            LoggerUtilities.info(Thread.currentThread().getName() + " completed the task.");
+                        LoggerUtilities.info(Thread.currentThread().getName() + " is waiting for a device.");
+                        //Blocks until another class returns a device or a new one finishes booting.
+                        leasedDevice = DevicePool.acquire(DevicePool.DEVICE_WAIT_TIMEOUT);
+                        if (leasedDevice != null) {
+                            LoggerUtilities.info("Emulator picked : " + leasedDevice.getValue().udid);
+                            fireUpEnvVars(leasedDevice);
+                        } else {
+                            LoggerUtilities.error("No free device available for " + Thread.currentThread().getName());
                         }
+                        LoggerUtilities.info(Thread.currentThread().getName() + " completed the task.");
                     }
                     break;
                 }
@@ -193,11 +236,9 @@ public class BaseTest {
             String appium_port = (System.getProperty("appium_port") != null && System.getProperty("appium_port").trim().length() > 0) ? System.getProperty("appium_port").trim() : (String) ReadProperties.getValue("appium_port");
             String appiumUrl = "http://" + appium_host + ":" + appium_port;
 
-            String appName = platformName.equalsIgnoreCase("android") ? ReadProperties.getValue("androidAppName") : ReadProperties.getValue("iosAppName");
-            appPath = System.getProperty("user.dir") + File.separator + "src" + File.separator + "test" + File.separator
-                    + "resources" + File.separator + "app" + File.separator + BasePage.getEnvName() + File.separator + BasePage.getCountry() + File.separator + appName;
+            appPath = getAppPath(platformName);
             LoggerUtilities.info("Setting up the baseTest.");
-            driverFactory.selectDriver(appPath, appiumUrl, BasePage.getUdid(), null);
+            driverFactory.leaseDriver(appPath, appiumUrl, BasePage.getUdid(), null);
         } catch (Exception e)
         {
             ExtentListeners.createTestPreReq("Execution Error", "BaseTest Setup");
@@ -250,11 +291,18 @@ public class BaseTest {
                     + File.separator + timestamp + File.separator + result.getTestClass().getRealClass().getSimpleName();
             recordVideo.stopRecording(result, path);
         }
+        LoggerUtilities.info("Fast-fail probes saved " + BasePage.takeProbeSavedMillis() / 1000.0 + " s in " + result.getName());
         LoggerUtilities.info("*** Test Case execution DONE : " + result.getName() + "\n");
     }
 
     @AfterClass(alwaysRun = true)
     public void tearDown(){
-        driverFactory.tearDown();
+        try {
+            driverFactory.tearDown();
+        } finally {
+            //give the device back so the next class can use it.
+            DevicePool.release(leasedDevice);
+            leasedDevice = null;
+        }
     }
 }
@@ -0,0 +1,234 @@
+package company.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AdbClientTest class checks the adb wire protocol of {@link AdbClient} against a scripted adb server on a local ServerSocketChannel.
+ */
+public class AdbClientTest {
+
+    private ServerSocketChannel server;
+    private AdbClient client;
+    private final AtomicInteger connections = new AtomicInteger();
+
+    /**
+     * Conversation is one scripted connection of the fake adb server, it returns what it received.
+     */
+    private interface Conversation<T> {
+        T run(SocketChannel channel) throws Exception;
+    }
+
+    @BeforeMethod
+    public void startServer() throws IOException {
+        connections.set(0);
+        server = ServerSocketChannel.open();
+        server.bind(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0));
+        client = new AdbClient("127.0.0.1", ((InetSocketAddress) server.getLocalAddress()).getPort());
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stopServer() throws IOException {
+        server.close();
+    }
+
+    @Test
+    public void parsesHostDevices() throws Exception {
+        CompletableFuture<List<String>> requests = serve(channel -> {
+            List<String> received = new ArrayList<>();
+            received.add(readRequest(channel));
+            write(channel, "OKAY");
+            writeLengthPrefixed(channel, "emulator-5554\tdevice\nR58M123\tunauthorized\n\nbroken-line\n");
+            return received;
+        });
+        Map<String, String> devices = client.devices();
+        Assert.assertEquals(requests.get(5, TimeUnit.SECONDS), List.of("host:devices"));
+        Assert.assertEquals(new ArrayList<>(devices.keySet()), List.of("emulator-5554", "R58M123"));
+        Assert.assertEquals(devices.get("emulator-5554"), "device");
+        Assert.assertEquals(devices.get("R58M123"), "unauthorized");
+    }
+
+    @Test
+    public void reportsFailMessage() throws Exception {
+        CompletableFuture<List<String>> requests = serve(channel -> {
+            List<String> received = new ArrayList<>();
+            received.add(readRequest(channel));
+            write(channel, "FAIL");
+            writeLengthPrefixed(channel, "device 'missing' not found");
+            return received;
+        });
+        IOException error = Assert.expectThrows(IOException.class, () -> client.shell("missing", "getprop"));
+        Assert.assertEquals(requests.get(5, TimeUnit.SECONDS), List.of("host:transport:missing"));
+        Assert.assertTrue(error.getMessage().contains("device 'missing' not found"), error.getMessage());
+    }
+
+    @Test
+    public void rejectsUnexpectedStatus() throws Exception {
+        serve(channel -> {
+            readRequest(channel);
+            write(channel, "WHAT");
+            return null;
+        });
+        IOException error = Assert.expectThrows(IOException.class, () -> client.devices());
+        Assert.assertTrue(error.getMessage().contains("WHAT"), error.getMessage());
+    }
+
+    @Test
+    public void framesPushAsSyncPackets() throws Exception {
+        byte[] data = new byte[64 * 1024 + 10];
+        for (int i = 0; i < data.length; i++) {
+            data[i] = (byte) i;
+        }
+        CompletableFuture<List<String>> packets = serve(channel -> {
+            List<String> received = new ArrayList<>();
+            received.add(readRequest(channel));
+            write(channel, "OKAY");
+            received.add(readRequest(channel));
+            write(channel, "OKAY");
+            ByteArrayOutputStream content = new ByteArrayOutputStream();
+            while (true) {
+                ByteBuffer header = ByteBuffer.wrap(read(channel, 8)).order(ByteOrder.LITTLE_ENDIAN);
+                String id = new String(header.array(), 0, 4, StandardCharsets.US_ASCII);
+                int value = header.getInt(4);
+                if (id.equals("SEND")) {
+                    received.add("SEND " + new String(read(channel, value), StandardCharsets.UTF_8));
+                } else if (id.equals("DATA")) {
+                    received.add("DATA " + value);
+                    content.write(read(channel, value));
+                } else if (id.equals("DONE")) {
+                    received.add("DONE");
+                    Assert.assertTrue(Math.abs(value - System.currentTimeMillis() / 1000) < 60, "DONE carries the mtime in seconds.");
+                    Assert.assertEquals(content.toByteArray(), data);
+                    ByteBuffer okay = ByteBuffer.allocate(8).order(ByteOrder.LITTLE_ENDIAN).put("OKAY".getBytes(StandardCharsets.US_ASCII)).putInt(0);
+                    okay.flip();
+                    channel.write(okay);
+                } else {
+                    received.add(id + " " + value);
+                    return received;
+                }
+            }
+        });
+        client.push("emulator-5554", data, "/data/local/tmp/state.tar", 0644);
+        Assert.assertEquals(packets.get(5, TimeUnit.SECONDS), List.of("host:transport:emulator-5554", "sync:",
+                "SEND /data/local/tmp/state.tar,420", "DATA 65536", "DATA 10", "DONE", "QUIT 0"));
+    }
+
+    @Test
+    public void reportsPushFailure() throws Exception {
+        serve(channel -> {
+            readRequest(channel);
+            write(channel, "OKAY");
+            readRequest(channel);
+            write(channel, "OKAY");
+            //SEND and one DATA packet, then DONE.
+            for (int i = 0; i < 3; i++) {
+                ByteBuffer header = ByteBuffer.wrap(read(channel, 8)).order(ByteOrder.LITTLE_ENDIAN);
+                String id = new String(header.array(), 0, 4, StandardCharsets.US_ASCII);
+                if (!id.equals("DONE")) {
+                    read(channel, header.getInt(4));
+                }
+            }
+            byte[] message = "Read-only file system".getBytes(StandardCharsets.UTF_8);
+            ByteBuffer fail = ByteBuffer.allocate(8 + message.length).order(ByteOrder.LITTLE_ENDIAN)
+                    .put("FAIL".getBytes(StandardCharsets.US_ASCII)).putInt(message.length).put(message);
+            fail.flip();
+            channel.write(fail);
+            return null;
+        });
+        IOException error = Assert.expectThrows(IOException.class, () -> client.push("emulator-5554", new byte[]{1, 2, 3}, "/system/file", 0644));
+        Assert.assertTrue(error.getMessage().contains("Read-only file system"), error.getMessage());
+    }
+
+    @Test
+    public void followsTrackDevicesSnapshots() throws Exception {
+        CompletableFuture<Void> release = new CompletableFuture<>();
+        CompletableFuture<List<String>> requests = serve(channel -> {
+            List<String> received = new ArrayList<>();
+            received.add(readRequest(channel));
+            write(channel, "OKAY");
+            writeLengthPrefixed(channel, "emulator-5554\toffline\n");
+            writeLengthPrefixed(channel, "emulator-5554\tdevice\nemulator-5556\toffline\n");
+            release.get(5, TimeUnit.SECONDS);
+            writeLengthPrefixed(channel, "");
+            return received;
+        });
+        BlockingQueue<Map<String, String>> snapshots = new LinkedBlockingQueue<>();
+        try (AdbClient.DeviceTracker tracker = client.trackDevices(snapshots::add)) {
+            Assert.assertEquals(snapshots.poll(5, TimeUnit.SECONDS), Map.of("emulator-5554", "offline"));
+            Assert.assertEquals(snapshots.poll(5, TimeUnit.SECONDS), Map.of("emulator-5554", "device", "emulator-5556", "offline"));
+            //answered from the tracker, the fake server accepts no second connection.
+            Assert.assertEquals(client.devices(), Map.of("emulator-5554", "device", "emulator-5556", "offline"));
+            release.complete(null);
+            Assert.assertEquals(snapshots.poll(5, TimeUnit.SECONDS), Map.of());
+            Assert.assertTrue(tracker.isOpen());
+            Assert.assertEquals(requests.get(5, TimeUnit.SECONDS), List.of("host:track-devices"));
+        }
+        Assert.assertEquals(connections.get(), 1);
+    }
+
+    //accepts one connection and runs the conversation on it, the result completes when the conversation ends.
+    private <T> CompletableFuture<T> serve(Conversation<T> conversation) {
+        CompletableFuture<T> result = new CompletableFuture<>();
+        Thread thread = new Thread(() -> {
+            try (SocketChannel channel = server.accept()) {
+                connections.incrementAndGet();
+                result.complete(conversation.run(channel));
+                //keep the connection until the client closed it, like the adb server does for streams.
+                channel.read(ByteBuffer.allocate(1));
+            } catch (Throwable e) {
+                result.completeExceptionally(e);
+            }
+        }, "fake-adb-server");
+        thread.setDaemon(true);
+        thread.start();
+        return result;
+    }
+
+    private static String readRequest(SocketChannel channel) throws IOException {
+        int length = Integer.parseInt(new String(read(channel, 4), StandardCharsets.US_ASCII), 16);
+        return new String(read(channel, length), StandardCharsets.UTF_8);
+    }
+
+    private static void writeLengthPrefixed(SocketChannel channel, String data) throws IOException {
+        byte[] payload = data.getBytes(StandardCharsets.UTF_8);
+        write(channel, String.format("%04x", payload.length) + data);
+    }
+
+    private static void write(SocketChannel channel, String data) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap(data.getBytes(StandardCharsets.UTF_8));
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    private static byte[] read(SocketChannel channel, int length) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(length);
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new EOFException("client closed the connection");
+            }
+        }
+        return buffer.array();
+    }
+}
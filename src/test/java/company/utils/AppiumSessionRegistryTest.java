@@ -0,0 +1,99 @@
+package company.utils;
+
+import com.sun.net.httpserver.HttpServer;
+import org.testng.Assert;
+import org.testng.annotations.AfterMethod;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.nio.charset.StandardCharsets;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * AppiumSessionRegistryTest class checks the sessions index of {@link AppiumSessionRegistry} against a local stub of the Appium server.
+ */
+public class AppiumSessionRegistryTest {
+
+    private static final String TWO_SESSIONS = "{\"value\":["
+            + "{\"id\":\"s1\",\"capabilities\":{\"udid\":\"Emulator-5554\"}},"
+            + "{\"id\":\"s2\",\"capabilities\":{\"udid\":\"00008030-ABC\"}},"
+            + "{\"id\":\"s3\",\"capabilities\":{}}]}";
+
+    private HttpServer server;
+    private final Map<String, String> responses = new ConcurrentHashMap<>();
+    private final Map<String, AtomicInteger> requests = new ConcurrentHashMap<>();
+
+    @BeforeMethod
+    public void startServer() throws IOException {
+        responses.clear();
+        requests.clear();
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/", exchange -> {
+            String path = exchange.getRequestURI().getPath();
+            requests.computeIfAbsent(path, p -> new AtomicInteger()).incrementAndGet();
+            String body = responses.get(path);
+            byte[] bytes = (body == null ? "{\"value\":{\"error\":\"unknown command\"}}" : body).getBytes(StandardCharsets.UTF_8);
+            exchange.sendResponseHeaders(body == null ? 404 : 200, bytes.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(bytes);
+            }
+        });
+        server.start();
+    }
+
+    @AfterMethod(alwaysRun = true)
+    public void stopServer() {
+        server.stop(0);
+    }
+
+    @Test
+    public void indexesSessionsByLowerCaseUdid() {
+        responses.put("/sessions", TWO_SESSIONS);
+        Map<String, String> sessions = newRegistry().refresh();
+        Assert.assertEquals(sessions, Map.of("emulator-5554", "s1", "00008030-abc", "s2"));
+    }
+
+    @Test
+    public void fallsBackToAppiumSessionsEndpoint() {
+        responses.put("/appium/sessions", TWO_SESSIONS);
+        AppiumSessionRegistry registry = newRegistry();
+        Assert.assertTrue(registry.isDeviceInUse("EMULATOR-5554"));
+        Assert.assertEquals(requests.get("/sessions").get(), 1);
+        Assert.assertEquals(requests.get("/appium/sessions").get(), 1);
+    }
+
+    @Test
+    public void reusesSnapshotUntilRefreshed() {
+        responses.put("/sessions", TWO_SESSIONS);
+        AppiumSessionRegistry registry = newRegistry();
+        registry.refresh();
+        Assert.assertTrue(registry.isDeviceInUse("emulator-5554"));
+        Assert.assertFalse(registry.isDeviceInUse("emulator-5556"));
+        Assert.assertEquals(requests.get("/sessions").get(), 1, "A snapshot younger than the TTL must be reused.");
+        registry.refresh();
+        Assert.assertEquals(requests.get("/sessions").get(), 2);
+    }
+
+    @Test
+    public void treatsMissingEndpointsAsNoSessions() {
+        AppiumSessionRegistry registry = newRegistry();
+        Assert.assertTrue(registry.refresh().isEmpty());
+        Assert.assertFalse(registry.isDeviceInUse(null));
+    }
+
+    @Test
+    public void treatsUnreachableServerAsNoSessions() {
+        server.stop(0);
+        Assert.assertTrue(newRegistry().refresh().isEmpty());
+    }
+
+    private AppiumSessionRegistry newRegistry() {
+        return new AppiumSessionRegistry("http://127.0.0.1:" + server.getAddress().getPort());
+    }
+}
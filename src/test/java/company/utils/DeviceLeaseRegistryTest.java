@@ -0,0 +1,55 @@
+package company.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.BeforeMethod;
+import org.testng.annotations.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+/**
+ * DeviceLeaseRegistryTest class checks the lease files of {@link DeviceLeaseRegistry}, two registries on one directory stand for two JVMs.
+ */
+public class DeviceLeaseRegistryTest {
+
+    private Path leaseDir;
+    private DeviceLeaseRegistry ours;
+    private DeviceLeaseRegistry other;
+
+    @BeforeMethod
+    public void createRegistries() throws IOException {
+        leaseDir = Files.createTempDirectory("device-leases");
+        ours = new DeviceLeaseRegistry(leaseDir);
+        other = new DeviceLeaseRegistry(leaseDir);
+    }
+
+    @Test
+    public void skipsDeviceLeasedElsewhere() {
+        Assert.assertTrue(ours.tryAcquire("emulator-5554"));
+        Assert.assertFalse(other.tryAcquire("emulator-5554"));
+        ours.release("emulator-5554");
+        Assert.assertTrue(other.tryAcquire("emulator-5554"));
+    }
+
+    @Test
+    public void reclaimsLeaseWithGarbledHeartbeat() throws IOException {
+        Files.writeString(leaseDir.resolve("emulator-5554.lease"), "owner=4242:main\nheartbeat=");
+        Assert.assertTrue(ours.tryAcquire("emulator-5554"));
+        Files.writeString(leaseDir.resolve("emulator-5556.lease"), "owner=4242:main\nheartbeat=\u0000\u0000");
+        Assert.assertTrue(ours.tryAcquire("emulator-5556"));
+    }
+
+    @Test
+    public void keepsParkedLeaseForThisJvm() throws Exception {
+        Assert.assertTrue(ours.tryAcquire("emulator-5554"));
+        ours.park("emulator-5554");
+        Assert.assertFalse(other.tryAcquire("emulator-5554"), "A parked lease still belongs to its JVM.");
+        boolean[] taken = new boolean[1];
+        Thread thread = new Thread(() -> taken[0] = ours.tryAcquire("emulator-5554"));
+        thread.start();
+        thread.join();
+        Assert.assertTrue(taken[0]);
+        Assert.assertFalse(ours.tryAcquire("emulator-5554"), "A parked lease is taken once.");
+    }
+}
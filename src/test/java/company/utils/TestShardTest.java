@@ -0,0 +1,50 @@
+package company.utils;
+
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * TestShardTest class checks how {@link TestShard} spreads test classes between shards.
+ */
+public class TestShardTest {
+
+    private static final List<String> CLASSES = List.of("company.e.Epsilon", "company.a.Alpha", "company.d.Delta", "company.b.Beta", "company.c.Charlie");
+
+    @Test
+    public void balancesByRecordedDuration() {
+        Map<String, Long> history = Map.of("company.a.Alpha", 600L, "company.b.Beta", 300L, "company.c.Charlie", 300L,
+                "company.d.Delta", 200L, "company.e.Epsilon", 100L);
+        Map<String, Integer> assignment = TestShard.assign(CLASSES, history, 2);
+        //800 ms and 700 ms, where dealing the classes by name would give 1000 ms and 500 ms.
+        Assert.assertEquals(assignment, Map.of("company.a.Alpha", 1, "company.b.Beta", 2, "company.c.Charlie", 2,
+                "company.d.Delta", 1, "company.e.Epsilon", 2));
+    }
+
+    @Test
+    public void countsUnknownClassesAsAverage() {
+        Map<String, Integer> assignment = TestShard.assign(CLASSES, Map.of("company.a.Alpha", 900L), 3);
+        Assert.assertEquals(assignment.get("company.a.Alpha"), Integer.valueOf(1));
+        Assert.assertEquals(assignment.get("company.b.Beta"), Integer.valueOf(2));
+        Assert.assertEquals(assignment.get("company.c.Charlie"), Integer.valueOf(3));
+    }
+
+    @Test
+    public void dealsRoundRobinByNameWithoutHistory() {
+        Map<String, Integer> assignment = TestShard.assign(CLASSES, Map.of(), 2);
+        Assert.assertEquals(assignment, Map.of("company.a.Alpha", 1, "company.b.Beta", 2, "company.c.Charlie", 1,
+                "company.d.Delta", 2, "company.e.Epsilon", 1));
+    }
+
+    @Test
+    public void ignoresDiscoveryOrder() {
+        Map<String, Long> history = Map.of("company.a.Alpha", 500L, "company.d.Delta", 500L);
+        List<String> reversed = new ArrayList<>(CLASSES);
+        Collections.reverse(reversed);
+        Assert.assertEquals(TestShard.assign(reversed, history, 3), TestShard.assign(CLASSES, history, 3));
+    }
+}
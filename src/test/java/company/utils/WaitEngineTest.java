@@ -0,0 +1,53 @@
+package company.utils;
+
+import org.openqa.selenium.WebElement;
+import org.testng.Assert;
+import org.testng.annotations.Test;
+
+import java.lang.reflect.Proxy;
+
+/**
+ * WaitEngineTest class checks the wait keys {@link WaitEngine} learns timeouts for.
+ */
+public class WaitEngineTest {
+
+    @Test
+    public void keysFoundElementsByLocatorOnly() {
+        WebElement first = element("[[AndroidDriver: android on ANY (4f1c-session)] -> id: com.app:id/login]");
+        WebElement second = element("[[AndroidDriver: android on ANY (9a2b-session)] -> id: com.app:id/login]");
+        Assert.assertEquals(WaitEngine.keyOf("visible", first), "visible:id: com.app:id/login");
+        Assert.assertEquals(WaitEngine.keyOf("visible", second), WaitEngine.keyOf("visible", first));
+    }
+
+    @Test
+    public void keysNestedElementsByLocatorChain() {
+        WebElement child = element("[[[[AndroidDriver: android on ANY (4f1c-session)] -> id: list]] -> xpath: //item[2]]");
+        Assert.assertEquals(WaitEngine.keyOf("clickable", child), "clickable:id: list > xpath: //item[2");
+    }
+
+    @Test
+    public void keysPageObjectFieldsByTheirDescription() {
+        Assert.assertEquals(WaitEngine.keyOf("visible", element("Located by By.id: username")), "visible:Located by By.id: username");
+    }
+
+    @Test
+    public void doesNotLearnElementsWithoutLocator() {
+        Assert.assertNull(WaitEngine.keyOf("visible", element("[org.openqa.selenium.remote.RemoteWebElement@86b219ed -> unknown locator]")));
+        Assert.assertNull(WaitEngine.keyOf("visible", element(null)));
+        Assert.assertNull(WaitEngine.keyOf("visible", null));
+    }
+
+    //an element that prints the given text, null prints the default Object.toString.
+    private static WebElement element(String description) {
+        return (WebElement) Proxy.newProxyInstance(WaitEngineTest.class.getClassLoader(), new Class<?>[]{WebElement.class}, (proxy, method, args) -> {
+            switch (method.getName()) {
+                case "toString":
+                    return description != null ? description : proxy.getClass().getName() + "@" + Integer.toHexString(System.identityHashCode(proxy));
+                case "hashCode":
+                    return System.identityHashCode(proxy);
+                default:
+                    return null;
+            }
+        });
+    }
+}